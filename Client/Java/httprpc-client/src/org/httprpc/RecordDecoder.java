@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+/**
+ * Decoder that reads a stream of records and passes each record to a record
+ * handler as soon as it has been read. Both newline-delimited JSON and
+ * server-sent events are supported. The decoded value is the number of
+ * records that were read. An event stream must be terminated by an "end"
+ * event; a stream that ends without one is reported as an error, since the
+ * connection may have been lost before all records were sent.
+ */
+public class RecordDecoder implements Decoder {
+    private boolean eventStream;
+    private RecordHandler<Object> recordHandler;
+
+    private static final String UTF_8_ENCODING = "UTF-8";
+
+    private static final String DATA_FIELD = "data";
+    private static final String EVENT_FIELD = "event";
+
+    private static final String MESSAGE_EVENT = "message";
+    private static final String END_EVENT = "end";
+
+    /**
+     * Creates a new record decoder.
+     *
+     * @param eventStream
+     * <tt>true</tt> if the records are sent as server-sent events;
+     * <tt>false</tt> if they are sent as newline-delimited JSON.
+     *
+     * @param recordHandler
+     * The handler that will receive each record.
+     */
+    @SuppressWarnings("unchecked")
+    public RecordDecoder(boolean eventStream, RecordHandler<?> recordHandler) {
+        if (recordHandler == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.eventStream = eventStream;
+        this.recordHandler = (RecordHandler<Object>)recordHandler;
+    }
+
+    @Override
+    public Object readValue(InputStream inputStream) throws IOException {
+        return readValue(new InputStreamReader(inputStream, Charset.forName(UTF_8_ENCODING)));
+    }
+
+    /**
+     * Reads records from a character stream.
+     *
+     * @param reader
+     * The character stream to read from.
+     *
+     * @return
+     * The number of records that were read.
+     *
+     * @throws IOException
+     * If an exception occurs, or if an event stream ends without an "end"
+     * event.
+     */
+    public Object readValue(Reader reader) throws IOException {
+        BufferedReader lineReader = new BufferedReader(reader);
+
+        int count = 0;
+
+        StringBuilder dataBuilder = null;
+        String event = null;
+
+        boolean ended = false;
+
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            if (!eventStream) {
+                if (line.trim().length() > 0) {
+                    recordHandler.execute(decode(line));
+
+                    count++;
+                }
+            } else if (line.length() == 0) {
+                // A blank line dispatches the current event
+                if (event != null && event.equals(END_EVENT)) {
+                    ended = true;
+
+                    break;
+                }
+
+                if (dataBuilder != null && (event == null || event.equals(MESSAGE_EVENT))) {
+                    recordHandler.execute(decode(dataBuilder.toString()));
+
+                    count++;
+                }
+
+                dataBuilder = null;
+                event = null;
+            } else if (!line.startsWith(":")) {
+                int i = line.indexOf(':');
+
+                String field = (i == -1) ? line : line.substring(0, i);
+                String value = (i == -1) ? "" : line.substring(line.startsWith(" ", i + 1) ? i + 2 : i + 1);
+
+                if (field.equals(DATA_FIELD)) {
+                    if (dataBuilder == null) {
+                        dataBuilder = new StringBuilder(value);
+                    } else {
+                        dataBuilder.append("\n");
+                        dataBuilder.append(value);
+                    }
+                } else if (field.equals(EVENT_FIELD)) {
+                    event = value;
+                }
+            }
+        }
+
+        if (eventStream && !ended) {
+            throw new IOException("Event stream ended without an end event.");
+        }
+
+        return count;
+    }
+
+    private static Object decode(String text) throws IOException {
+        return new JSONDecoder().readValue(new StringReader(text));
+    }
+}
@@ -16,17 +16,124 @@ package org.httprpc;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Abstract base class for typed results.
  */
 public abstract class Result {
+    // Row list
+    private static class RowList extends AbstractList<Map<String, Object>> {
+        private List<?> columns;
+        private HashMap<Object, Integer> indices;
+        private List<?> rows;
+
+        public RowList(List<?> columns, List<?> rows) {
+            this.columns = columns;
+            this.rows = rows;
+
+            int n = columns.size();
+
+            indices = new HashMap<>(n * 4 / 3 + 1);
+
+            for (int i = 0; i < n; i++) {
+                indices.put(columns.get(i), i);
+            }
+        }
+
+        @Override
+        public Map<String, Object> get(int index) {
+            return new RowMap(columns, indices, (List<?>)rows.get(index));
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    // Row map
+    private static class RowMap extends AbstractMap<String, Object> {
+        private List<?> columns;
+        private HashMap<Object, Integer> indices;
+        private List<?> values;
+
+        private Set<Entry<String, Object>> entrySet = new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return columns.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < columns.size();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>((String)columns.get(i), values.get(i));
+
+                        i++;
+
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        public RowMap(List<?> columns, HashMap<Object, Integer> indices, List<?> values) {
+            this.columns = columns;
+            this.indices = indices;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = indices.get(key);
+
+            return (index == null) ? null : values.get(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indices.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return entrySet;
+        }
+    }
+
     private HashMap<String, Method> setters = new HashMap<>();
 
     private static final String SET_PREFIX = "set";
 
+    private static final String COLUMNS_KEY = "columns";
+    private static final String ROWS_KEY = "rows";
+
     /**
      * Constructs a result object.
      *
@@ -162,4 +269,31 @@ public abstract class Result {
 
         return (V)value;
     }
+
+    /**
+     * Returns a list view of a columnar result, such as one produced by a
+     * service method that uses the columnar JSON encoding. Each element of the
+     * list is a map view of the corresponding row, keyed by column name. Row
+     * maps are created on demand and share a single column index.
+     *
+     * @param table
+     * A map containing a "columns" list and a "rows" list of lists.
+     *
+     * @return
+     * The rows of the table, as maps.
+     */
+    public static List<Map<String, Object>> getRows(Map<String, ?> table) {
+        if (table == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Object columns = table.get(COLUMNS_KEY);
+        Object rows = table.get(ROWS_KEY);
+
+        if (!(columns instanceof List<?> && rows instanceof List<?>)) {
+            throw new IllegalArgumentException("Value is not a columnar result.");
+        }
+
+        return new RowList((List<?>)columns, (List<?>)rows);
+    }
 }
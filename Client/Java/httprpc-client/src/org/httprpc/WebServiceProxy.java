@@ -48,10 +48,12 @@ public class WebServiceProxy {
         private String method;
         private String path;
         private Map<String, ?> arguments;
+        private RecordHandler<?> recordHandler;
         private ResultHandler<V> resultHandler;
 
         private static final String POST_METHOD = "POST";
 
+        private static final String ACCEPT_KEY = "Accept";
         private static final String ACCEPT_LANGUAGE_KEY = "Accept-Language";
 
         private static final String CONTENT_TYPE_KEY = "Content-Type";
@@ -68,10 +70,12 @@ public class WebServiceProxy {
 
         private static final int EOF = -1;
 
-        public InvocationCallback(String method, String path, Map<String, ?> arguments, ResultHandler<V> resultHandler) {
+        public InvocationCallback(String method, String path, Map<String, ?> arguments,
+            RecordHandler<?> recordHandler, ResultHandler<V> resultHandler) {
             this.method = method;
             this.path = path;
             this.arguments = arguments;
+            this.recordHandler = recordHandler;
             this.resultHandler = resultHandler;
         }
 
@@ -158,6 +162,11 @@ public class WebServiceProxy {
 
             connection.setRequestProperty(ACCEPT_LANGUAGE_KEY, acceptLanguage);
 
+            // Request a record stream
+            if (recordHandler != null) {
+                connection.setRequestProperty(ACCEPT_KEY, NDJSON_MIME_TYPE);
+            }
+
             // Authenticate request
             if (authentication != null) {
                 authentication.authenticateRequest(connection);
@@ -244,7 +253,11 @@ public class WebServiceProxy {
             Object result;
             if (responseCode / 100 == 2) {
                 try (InputStream inputStream = new MonitoredInputStream(connection.getInputStream())) {
-                    result = decodeResponse(inputStream, connection.getContentType());
+                    if (recordHandler == null) {
+                        result = decodeResponse(inputStream, connection.getContentType());
+                    } else {
+                        result = decodeRecords(inputStream, connection.getContentType(), recordHandler);
+                    }
                 }
             } else {
                 throw new IOException(String.format("%d %s", responseCode, connection.getResponseMessage()));
@@ -314,6 +327,8 @@ public class WebServiceProxy {
     private static final String UTF_8_ENCODING = "UTF-8";
 
     private static final String JSON_MIME_TYPE = "application/json";
+    private static final String NDJSON_MIME_TYPE = "application/x-ndjson";
+    private static final String EVENT_STREAM_MIME_TYPE = "text/event-stream";
 
     /**
      * Creates a new HTTP-RPC service proxy.
@@ -456,7 +471,54 @@ public class WebServiceProxy {
             throw new IllegalArgumentException();
         }
 
-        return executorService.submit(new InvocationCallback<>(method, path, arguments, resultHandler));
+        return executorService.submit(new InvocationCallback<>(method, path, arguments, null, resultHandler));
+    }
+
+    /**
+     * Executes a streaming service operation. Each element of the list
+     * returned by the operation is passed to the record handler as soon as it
+     * has been received, rather than after the entire response has been read.
+     *
+     * @param <V> The type of the records returned by the operation.
+     *
+     * @param method
+     * The HTTP verb associated with the request.
+     *
+     * @param path
+     * The path associated with the request.
+     *
+     * @param arguments
+     * The request arguments.
+     *
+     * @param recordHandler
+     * A callback that will be invoked for each record.
+     *
+     * @param resultHandler
+     * A callback that will be invoked with the number of records upon
+     * completion of the request, or <tt>null</tt> for no result handler.
+     *
+     * @return
+     * A future representing the invocation request.
+     */
+    public <V> Future<Integer> invoke(String method, String path, Map<String, ?> arguments,
+        RecordHandler<V> recordHandler, ResultHandler<Integer> resultHandler) {
+        if (method == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (path == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (arguments == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (recordHandler == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return executorService.submit(new InvocationCallback<>(method, path, arguments, recordHandler, resultHandler));
     }
 
     /**
@@ -487,6 +549,73 @@ public class WebServiceProxy {
         return value;
     }
 
+    /**
+     * Decodes a stream of records.
+     *
+     * @param inputStream
+     * The input stream to read from.
+     *
+     * @param contentType
+     * The MIME type of the content, or <tt>null</tt> if the content type is
+     * unknown.
+     *
+     * @param recordHandler
+     * The handler that will receive each record. Records are delivered via
+     * {@link #dispatchResult(Runnable)}.
+     *
+     * @return
+     * The number of records that were read, or 0 if the response has no
+     * content type.
+     *
+     * @throws IOException
+     * If an exception occurs, or if the content type is not supported.
+     */
+    @SuppressWarnings("unchecked")
+    protected int decodeRecords(InputStream inputStream, String contentType, RecordHandler<?> recordHandler) throws IOException {
+        final RecordHandler<Object> handler = (RecordHandler<Object>)recordHandler;
+
+        RecordHandler<Object> dispatcher = new RecordHandler<Object>() {
+            @Override
+            public void execute(final Object record) {
+                dispatchResult(new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.execute(record);
+                    }
+                });
+            }
+        };
+
+        int count = 0;
+
+        if (contentType != null) {
+            if (contentType.startsWith(NDJSON_MIME_TYPE) || contentType.startsWith(EVENT_STREAM_MIME_TYPE)) {
+                Decoder decoder = new RecordDecoder(contentType.startsWith(EVENT_STREAM_MIME_TYPE), dispatcher);
+
+                count = (Integer)decoder.readValue(inputStream);
+            } else if (contentType.startsWith(JSON_MIME_TYPE)) {
+                // The server does not support streaming; deliver the elements of the decoded list
+                Object value = new JSONDecoder().readValue(inputStream);
+
+                if (value instanceof List<?>) {
+                    for (Object element : (List<?>)value) {
+                        dispatcher.execute(element);
+
+                        count++;
+                    }
+                } else {
+                    dispatcher.execute(value);
+
+                    count++;
+                }
+            } else {
+                throw new IOException("Unsupported content type: " + contentType);
+            }
+        }
+
+        return count;
+    }
+
     /**
      * Dispatches a result value.
      *
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebServiceProxy.listOf;
+import static org.httprpc.WebServiceProxy.mapOf;
+import static org.httprpc.WebServiceProxy.entry;
+
+public class RecordDecoderTest {
+    @Test
+    public void testNDJSON() throws IOException {
+        final ArrayList<Object> records = new ArrayList<>();
+
+        RecordDecoder decoder = new RecordDecoder(false, new RecordHandler<Object>() {
+            @Override
+            public void execute(Object record) {
+                records.add(record);
+            }
+        });
+
+        Object count = decoder.readValue(new StringReader("{\"a\": 1,\"b\": \"x\\ny\"}\n\n[1,2]\n\"abc\"\n"));
+
+        Assert.assertEquals(3, count);
+        Assert.assertTrue(records.equals(listOf(mapOf(entry("a", 1), entry("b", "x\ny")), listOf(1, 2), "abc")));
+    }
+
+    @Test
+    public void testEventStream() throws IOException {
+        final ArrayList<Object> records = new ArrayList<>();
+
+        RecordDecoder decoder = new RecordDecoder(true, new RecordHandler<Object>() {
+            @Override
+            public void execute(Object record) {
+                records.add(record);
+            }
+        });
+
+        Object count = decoder.readValue(new StringReader(": comment\n\n"
+            + "data: {\"a\": 1}\n\n"
+            + "event: other\ndata: 2\n\n"
+            + "data:[1,\ndata: 2]\n\n"
+            + "event: end\ndata:\n\n"
+            + "data: 3\n\n"));
+
+        Assert.assertEquals(2, count);
+        Assert.assertTrue(records.equals(listOf(mapOf(entry("a", 1)), listOf(1, 2))));
+    }
+
+    @Test
+    public void testTruncatedEventStream() throws IOException {
+        final ArrayList<Object> records = new ArrayList<>();
+
+        RecordDecoder decoder = new RecordDecoder(true, new RecordHandler<Object>() {
+            @Override
+            public void execute(Object record) {
+                records.add(record);
+            }
+        });
+
+        try {
+            decoder.readValue(new StringReader("data: 1\n\ndata: 2\n\n"));
+
+            Assert.fail();
+        } catch (IOException exception) {
+            Assert.assertTrue(records.equals(listOf(1, 2)));
+        }
+    }
+}
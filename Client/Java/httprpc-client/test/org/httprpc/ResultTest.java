@@ -14,11 +14,13 @@
 
 package org.httprpc;
 
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import static org.httprpc.WebServiceProxy.listOf;
 import static org.httprpc.WebServiceProxy.mapOf;
 import static org.httprpc.WebServiceProxy.entry;
 
@@ -38,5 +40,22 @@ public class ResultTest {
 
         Assert.assertEquals(null, Result.getValue(root, "a.b.x"));
     }
-}
 
+    @Test
+    public void testGetRows() {
+        Map<String, ?> table = mapOf(
+            entry("columns", listOf("a", "b")),
+            entry("rows", listOf(listOf(1, "x"), listOf(2, null)))
+        );
+
+        List<Map<String, Object>> rows = Result.getRows(table);
+
+        Assert.assertEquals(2, rows.size());
+
+        Assert.assertEquals(mapOf(entry("a", 1), entry("b", "x")), rows.get(0));
+        Assert.assertEquals(mapOf(entry("a", 2), entry("b", null)), rows.get(1));
+
+        Assert.assertTrue(rows.get(1).containsKey("b"));
+        Assert.assertNull(rows.get(1).get("c"));
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.httprpc.beans.BeanAdapter;
+import org.httprpc.template.Modifier;
+import org.httprpc.template.TemplateCache;
+import org.httprpc.template.TemplateEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.httprpc.WebService.entry;
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+
+/**
+ * Template engine benchmarks. Renders the test service templates and a set of
+ * synthetic templates with varying row counts, nesting depth, includes, and
+ * modifiers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateEncoderBenchmark {
+    // Tree node
+    public static class TreeNode {
+        private String name;
+        private List<TreeNode> children;
+
+        public TreeNode(String name, List<TreeNode> children) {
+            this.name = name;
+            this.children = children;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<TreeNode> getChildren() {
+            return children;
+        }
+    }
+
+    // Case modifier used by the test service templates
+    public static class CaseModifier implements Modifier {
+        @Override
+        public Object apply(Object value, String argument, Locale locale) {
+            String string = value.toString();
+
+            if (argument == null) {
+                return string;
+            } else if (argument.equals("upper")) {
+                return string.toUpperCase(locale);
+            } else if (argument.equals("lower")) {
+                return string.toLowerCase(locale);
+            } else {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+
+    // Row state
+    @State(Scope.Benchmark)
+    public static class RowState {
+        @Param({"10", "1000", "10000"})
+        public int rows;
+
+        public List<Map<String, ?>> testData;
+        public List<Map<String, ?>> orders;
+        public List<Map<String, ?>> text;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            // testdata.html applies the "test" modifier
+            TemplateEncoder.getModifiers().put("test", new CaseModifier());
+
+            testData = new ArrayList<>(rows);
+            orders = new ArrayList<>(rows);
+            text = new ArrayList<>(rows);
+
+            for (int i = 0; i < rows; i++) {
+                testData.add(mapOf(
+                    entry("a", "Row " + i),
+                    entry("b", i),
+                    entry("c", i * 1.5)
+                ));
+
+                orders.add(mapOf(
+                    entry("id", i),
+                    entry("name", "Order <" + i + "> & \"co\""),
+                    entry("items", listOf(
+                        mapOf(entry("sku", "A-" + i), entry("quantity", 1), entry("price", 9.99)),
+                        mapOf(entry("sku", "B-" + i), entry("quantity", 2), entry("price", 19.5)),
+                        mapOf(entry("sku", "C-" + i), entry("quantity", 3), entry("price", 0.25))
+                    ))
+                ));
+
+                text.add(mapOf(entry("text", "a<b>c&d\"e\\f\ng:h/i j," + i)));
+            }
+        }
+    }
+
+    // Tree state
+    @State(Scope.Benchmark)
+    public static class TreeState {
+        @Param({"2", "4", "6"})
+        public int depth;
+
+        public Map<String, ?> tree;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            tree = new BeanAdapter(createNode("root", depth));
+        }
+
+        private static TreeNode createNode(String name, int depth) {
+            List<TreeNode> children = null;
+
+            if (depth > 0) {
+                children = new ArrayList<>(4);
+
+                for (int i = 0; i < 4; i++) {
+                    children.add(createNode(name + "." + i, depth - 1));
+                }
+            }
+
+            return new TreeNode(name, children);
+        }
+    }
+
+    // Parallel state
+    @State(Scope.Benchmark)
+    public static class ParallelState {
+        @Param({"0", "1000"})
+        public int parallelismThreshold;
+    }
+
+    // Writer that discards its output but counts the characters written, so
+    // the result can be returned to JMH and is not eliminated
+    private static class CountingWriter extends Writer {
+        private long count = 0;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            // No-op
+        }
+
+        @Override
+        public void close() {
+            // No-op
+        }
+    }
+
+    // Templates are cached, as they are by RequestDispatcherServlet, so the
+    // benchmarks measure rendering rather than template loading
+    private static final TemplateCache templateCache = new TemplateCache(TemplateCache.Mode.PRODUCTION);
+
+    private static final String TEST_PACKAGE = "/org/httprpc/test/";
+    private static final String TEST_BASE_NAME = "org.httprpc.test.TestService";
+
+    @Benchmark
+    public long testDataHTML(RowState state) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(getTestResource("testdata.html"), "text/html", TEST_BASE_NAME);
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(state.testData, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long testDataCSV(RowState state) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(getTestResource("testdata.csv"), "text/csv");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(state.testData, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long testDataXML(RowState state) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(getTestResource("testdata.xml"), "application/xml");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(state.testData, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long statistics() throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(getTestResource("statistics.html"), "text/html");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(mapOf(entry("count", 3), entry("sum", 9.0), entry("average", 3.0)), writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long tree(TreeState state) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(getTestResource("tree.html"), "text/html");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(state.tree, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long nestedSections(RowState state, ParallelState parallelState) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(TemplateEncoderBenchmark.class.getResource("section.xml"), "application/xml");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.setParallelismThreshold(parallelState.parallelismThreshold);
+
+        engine.writeValue(state.orders, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    @Benchmark
+    public long escapeModifiers(RowState state) throws IOException {
+        CountingWriter writer = new CountingWriter();
+
+        TemplateEncoder engine = new TemplateEncoder(TemplateEncoderBenchmark.class.getResource("modifiers.txt"), "text/plain");
+
+        engine.setTemplateCache(templateCache);
+
+        engine.writeValue(state.text, writer, Locale.US);
+
+        return writer.count;
+    }
+
+    private static URL getTestResource(String name) {
+        return TemplateEncoderBenchmark.class.getResource(TEST_PACKAGE + name);
+    }
+}
@@ -19,6 +19,7 @@ import org.httprpc.RPC;
 import org.httprpc.Template;
 import org.httprpc.WebService;
 import org.httprpc.util.IteratorAdapter;
+import org.httprpc.util.PrefetchingIteratorAdapter;
 
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoDatabase;
@@ -42,6 +43,6 @@ public class RestaurantService extends WebService {
         MongoDatabase db = MongoClientManager.getMongoClient().getDatabase("test");
         FindIterable<Document> iterable = db.getCollection("restaurants").find(new Document("address.zipcode", zipCode));
 
-        return new IteratorAdapter(iterable.iterator());
+        return new PrefetchingIteratorAdapter(iterable.iterator(), 64);
     }
 }
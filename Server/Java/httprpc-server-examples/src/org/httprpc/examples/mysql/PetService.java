@@ -14,7 +14,6 @@
 
 package org.httprpc.examples.mysql;
 
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
@@ -28,16 +27,6 @@ import org.httprpc.sql.ResultSetAdapter;
  * Pet service.
  */
 public class PetService extends WebService {
-    private static final String DB_URL = "jdbc:mysql://db.local:3306/menagerie?user=root&password=password";
-
-    static {
-        try {
-            Class.forName("com.mysql.jdbc.Driver");
-        } catch (ClassNotFoundException exception) {
-            throw new RuntimeException(exception);
-        }
-    }
-
     /**
      * Retrieves a list of pets belonging to a given owner.
      *
@@ -51,7 +40,7 @@ public class PetService extends WebService {
     @Template(name="pets.html", contentType="text/html")
     public ResultSetAdapter getPets(String owner) throws SQLException {
         Parameters parameters = Parameters.parse("select name, species, sex, birth from pet where owner = :owner");
-        PreparedStatement statement = DriverManager.getConnection(DB_URL).prepareStatement(parameters.getSQL());
+        PreparedStatement statement = parameters.prepare(getDataSource().getConnection());
 
         parameters.apply(statement, mapOf(entry("owner", owner)));
 
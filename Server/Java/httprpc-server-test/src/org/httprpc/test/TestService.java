@@ -17,7 +17,6 @@ package org.httprpc.test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.AbstractList;
@@ -37,17 +36,6 @@ import org.httprpc.sql.Parameters;
 import org.httprpc.sql.ResultSetAdapter;
 
 public class TestService extends WebService {
-    private static final String DB_URL = String.format("jdbc:sqlite::resource:%s/test.db",
-        TestService.class.getPackage().getName().replace('.', '/'));;
-
-    static {
-        try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException exception) {
-            throw new RuntimeException(exception);
-        }
-    }
-
     @RPC(method="GET", path="sum")
     public double getSum(double a, double b) {
         return a + b;
@@ -168,7 +156,7 @@ public class TestService extends WebService {
     @Template(name="testdata.xml", contentType="application/xml")
     public ResultSetAdapter getTestData() throws SQLException {
         Parameters parameters = Parameters.parse("select * from test where a=:a or b=:b or c=coalesce(:c, 4.0)");
-        PreparedStatement statement = DriverManager.getConnection(DB_URL).prepareStatement(parameters.getSQL());
+        PreparedStatement statement = parameters.prepare(getDataSource().getConnection());
 
         parameters.apply(statement, mapOf(entry("a", "hello"), entry("b", 3)));
 
@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Parameter binder
+class Binder {
+    private MethodHandle constructor = null;
+    private boolean record = false;
+
+    private String[] names = null;
+    private Type[] types = null;
+    private MethodHandle[] setters = null;
+    private Binder[] binders = null;
+
+    private static final String GET_PREFIX = "get";
+    private static final String IS_PREFIX = "is";
+    private static final String SET_PREFIX = "set";
+    private static final String RECORD_CLASS_NAME = "java.lang.Record";
+    private static final String RECORD_COMPONENT_CLASS_NAME = "java.lang.reflect.RecordComponent";
+
+    private static final Set<Class<?>> simpleTypes = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+        String.class,
+        Byte.TYPE, Byte.class,
+        Short.TYPE, Short.class,
+        Integer.TYPE, Integer.class,
+        Long.TYPE, Long.class,
+        Float.TYPE, Float.class,
+        Double.TYPE, Double.class,
+        Boolean.TYPE, Boolean.class,
+        Date.class,
+        LocalDate.class,
+        LocalTime.class,
+        LocalDateTime.class
+    ));
+
+    private Binder() {
+    }
+
+    /**
+     * Binds request parameters to a new instance of the binder's type.
+     *
+     * @param prefix
+     * The name prefix of the parameters to bind.
+     *
+     * @param parameterMap
+     * The parameter map.
+     *
+     * @return
+     * The bound instance, or <tt>null</tt> if no parameter name starts with
+     * the prefix.
+     */
+    public Object bind(String prefix, Map<String, String[]> parameterMap) {
+        if (getCount(parameterMap, prefix) == 0) {
+            return null;
+        }
+
+        int n = names.length;
+
+        Object[] arguments = new Object[n];
+        boolean[] bound = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            String name = prefix + names[i];
+
+            if (binders[i] != null) {
+                arguments[i] = binders[i].bind(name + ".", parameterMap);
+                bound[i] = (arguments[i] != null);
+            } else {
+                String[] values = parameterMap.get(name);
+
+                if (values != null) {
+                    arguments[i] = RequestDispatcherServlet.getArgument(values, types[i]);
+                    bound[i] = true;
+                } else if (record && types[i] instanceof Class<?> && ((Class<?>)types[i]).isPrimitive()) {
+                    arguments[i] = RequestDispatcherServlet.getArgument((String)null, types[i]);
+                }
+            }
+        }
+
+        try {
+            Object instance;
+            if (record) {
+                instance = (Object)constructor.invokeExact(arguments);
+            } else {
+                instance = (Object)constructor.invokeExact();
+
+                for (int i = 0; i < n; i++) {
+                    if (bound[i]) {
+                        Object argument = arguments[i];
+
+                        setters[i].invokeExact(instance, argument);
+                    }
+                }
+            }
+
+            return instance;
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Returns the number of parameters whose names start with a given prefix.
+     *
+     * @param parameterMap
+     * The parameter map.
+     *
+     * @param prefix
+     * The name prefix.
+     *
+     * @return
+     * The number of matching parameters.
+     */
+    public static int getCount(Map<String, String[]> parameterMap, String prefix) {
+        int count = 0;
+
+        for (String name : parameterMap.keySet()) {
+            if (name.startsWith(prefix)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a binder for a given type.
+     *
+     * @param type
+     * The type to bind.
+     *
+     * @param binders
+     * The binders that have already been compiled, keyed by type.
+     *
+     * @return
+     * The binder, or <tt>null</tt> if the type is not a Bean or record type.
+     *
+     * @throws IllegalArgumentException
+     * If the type declares a property that cannot be bound.
+     */
+    public static Binder getBinder(Class<?> type, Map<Class<?>, Binder> binders) {
+        if (binders.containsKey(type)) {
+            return binders.get(type);
+        }
+
+        if (type.isPrimitive()
+            || type.isArray()
+            || type.isInterface()
+            || Modifier.isAbstract(type.getModifiers())
+            || !Modifier.isPublic(type.getModifiers())
+            || type.getName().startsWith("java.")
+            || type.getName().startsWith("javax.")) {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+        Binder binder = new Binder();
+
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Type> types = new ArrayList<>();
+        ArrayList<MethodHandle> setters = new ArrayList<>();
+
+        try {
+            Class<?> superclass = type.getSuperclass();
+
+            if (superclass != null && superclass.getName().equals(RECORD_CLASS_NAME)) {
+                // Bind to canonical constructor
+                Class<?> recordComponentType = Class.forName(RECORD_COMPONENT_CLASS_NAME);
+
+                Method getName = recordComponentType.getMethod("getName");
+                Method getType = recordComponentType.getMethod("getType");
+                Method getGenericType = recordComponentType.getMethod("getGenericType");
+
+                Object[] components = (Object[])Class.class.getMethod("getRecordComponents").invoke(type);
+
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+
+                for (int i = 0; i < components.length; i++) {
+                    names.add((String)getName.invoke(components[i]));
+                    types.add((Type)getGenericType.invoke(components[i]));
+
+                    parameterTypes[i] = (Class<?>)getType.invoke(components[i]);
+                }
+
+                binder.record = true;
+                binder.constructor = lookup.unreflectConstructor(type.getConstructor(parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            } else {
+                // Bind to default constructor and setters
+                Constructor<?> constructor;
+                try {
+                    constructor = type.getConstructor();
+                } catch (NoSuchMethodException exception) {
+                    return null;
+                }
+
+                binder.constructor = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+
+                TreeMap<String, ArrayList<Method>> candidates = new TreeMap<>();
+
+                Method[] methods = type.getMethods();
+
+                for (int i = 0; i < methods.length; i++) {
+                    Method method = methods[i];
+
+                    String methodName = method.getName();
+
+                    int j = SET_PREFIX.length();
+                    int n = methodName.length();
+
+                    if (methodName.startsWith(SET_PREFIX) && j < n && method.getParameterTypes().length == 1
+                        && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()) {
+                        char c = methodName.charAt(j++);
+
+                        if (j == n || Character.isLowerCase(methodName.charAt(j))) {
+                            c = Character.toLowerCase(c);
+                        }
+
+                        String name = c + methodName.substring(j);
+
+                        ArrayList<Method> setterList = candidates.get(name);
+
+                        if (setterList == null) {
+                            setterList = new ArrayList<>(1);
+
+                            candidates.put(name, setterList);
+                        }
+
+                        setterList.add(method);
+                    }
+                }
+
+                for (Map.Entry<String, ArrayList<Method>> entry : candidates.entrySet()) {
+                    String name = entry.getKey();
+
+                    Method setter = getSetter(type, entry.getValue());
+
+                    if (setter == null) {
+                        throw new IllegalArgumentException("Ambiguous property setter: " + type.getName() + "." + name);
+                    }
+
+                    names.add(name);
+                    types.add(setter.getGenericParameterTypes()[0]);
+                    setters.add(lookup.unreflect(setter).asType(MethodType.methodType(Void.TYPE, Object.class, Object.class)));
+                }
+            }
+        } catch (ReflectiveOperationException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        binders.put(type, binder);
+
+        int n = names.size();
+
+        binder.names = names.toArray(new String[n]);
+        binder.types = types.toArray(new Type[n]);
+        binder.setters = setters.toArray(new MethodHandle[setters.size()]);
+        binder.binders = new Binder[n];
+
+        for (int i = 0; i < n; i++) {
+            Type propertyType = binder.types[i];
+
+            if (propertyType instanceof Class<?>) {
+                binder.binders[i] = getBinder((Class<?>)propertyType, binders);
+            }
+
+            if (binder.binders[i] == null && !isSupported(propertyType)) {
+                throw new IllegalArgumentException("Unsupported property type: " + type.getName() + "." + binder.names[i]);
+            }
+        }
+
+        return binder;
+    }
+
+    private static Method getSetter(Class<?> type, List<Method> setterList) {
+        if (setterList.size() == 1) {
+            return setterList.get(0);
+        }
+
+        // Prefer the overload that accepts the getter's type
+        String suffix = setterList.get(0).getName().substring(SET_PREFIX.length());
+
+        Class<?> propertyType = null;
+
+        for (String prefix : new String[] {GET_PREFIX, IS_PREFIX}) {
+            try {
+                propertyType = type.getMethod(prefix + suffix).getReturnType();
+
+                break;
+            } catch (NoSuchMethodException exception) {
+                // No getter with this prefix
+            }
+        }
+
+        for (Method setter : setterList) {
+            if (setter.getParameterTypes()[0] == propertyType) {
+                return setter;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isSupported(Type type) {
+        if (type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() == List.class) {
+            type = ((ParameterizedType)type).getActualTypeArguments()[0];
+        }
+
+        return simpleTypes.contains(type);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.httprpc.sql.ResultSetAdapter;
+
+/**
+ * JSON encoder that writes a list of rows in columnar form; for example:
+ *
+ * <pre>
+ * {
+ *   "columns": ["a", "b"],
+ *   "rows": [
+ *     [1, 2.0],
+ *     [3, 4.0]
+ *   ]
+ * }
+ * </pre>
+ *
+ * Column names are not repeated for each row. The columns of a
+ * {@link ResultSetAdapter} are the dot-separated paths of the values in the
+ * adapter's rows, in the order they appear in each row's map; rows are written
+ * directly from the result set cursor. Nested values are not expanded, so a
+ * label such as "owner.name" produces a column of the same name.
+ *
+ * The columns of any other list are the keys of its first element. Lists
+ * whose first element is not a map, and values other than lists, are encoded
+ * as by {@link JSONEncoder}.
+ * <p>
+ * The encoder is selected either by annotating a service method with
+ * {@link Encoding}, or by passing "encoding=columnar" with a request.
+ */
+public class ColumnarJSONEncoder extends JSONEncoder {
+    // List that resumes a partially consumed iterator
+    private static class ResumedList extends AbstractList<Object> {
+        private Object first;
+        private Iterator<?> iterator;
+
+        public ResumedList(Object first, Iterator<?> iterator) {
+            this.first = first;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public Object get(int index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+                private boolean head = true;
+
+                @Override
+                public boolean hasNext() {
+                    return head || iterator.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    if (head) {
+                        head = false;
+
+                        return first;
+                    }
+
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    private boolean root = true;
+
+    private static final int ROW_DEPTH = 2;
+
+    @Override
+    public void writeValue(Object value, Writer writer) throws IOException {
+        if (!root) {
+            super.writeValue(value, writer);
+
+            return;
+        }
+
+        root = false;
+
+        try {
+            if (value instanceof ResultSetAdapter) {
+                ResultSetAdapter resultSetAdapter = (ResultSetAdapter)value;
+
+                Throwable failure = null;
+
+                try {
+                    writeResultSet(resultSetAdapter, writer);
+                } catch (SQLException exception) {
+                    IOException ioException = new IOException(exception);
+
+                    failure = ioException;
+
+                    throw ioException;
+                } catch (IOException | RuntimeException | Error exception) {
+                    failure = exception;
+
+                    throw exception;
+                } finally {
+                    try {
+                        resultSetAdapter.close();
+                    } catch (SQLException exception) {
+                        // Don't mask the exception that ended encoding
+                        if (failure != null) {
+                            failure.addSuppressed(exception);
+                        } else {
+                            throw new IOException(exception);
+                        }
+                    }
+                }
+            } else if (value instanceof List<?>) {
+                List<?> list = (List<?>)value;
+
+                Throwable failure = null;
+
+                try {
+                    writeList(list, writer);
+                } catch (IOException | RuntimeException | Error exception) {
+                    failure = exception;
+
+                    throw exception;
+                } finally {
+                    if (list instanceof AutoCloseable) {
+                        try {
+                            ((AutoCloseable)list).close();
+                        } catch (Exception exception) {
+                            // Don't mask the exception that ended encoding
+                            if (failure != null) {
+                                failure.addSuppressed(exception);
+                            } else {
+                                throw new IOException(exception);
+                            }
+                        }
+                    }
+                }
+            } else {
+                super.writeValue(value, writer);
+            }
+        } finally {
+            root = true;
+        }
+    }
+
+    private void writeResultSet(ResultSetAdapter resultSetAdapter, Writer writer) throws SQLException, IOException {
+        final ArrayList<String> columns = new ArrayList<>();
+        final ArrayList<Integer> indices = new ArrayList<>();
+
+        resultSetAdapter.accept(new ResultSetAdapter.RowVisitor() {
+            private LinkedList<String> path = new LinkedList<>();
+
+            @Override
+            public void visitColumn(String key, int index) {
+                StringBuilder column = new StringBuilder();
+
+                for (String component : path) {
+                    column.append(component);
+                    column.append('.');
+                }
+
+                column.append(key);
+
+                columns.add(column.toString());
+                indices.add(index);
+            }
+
+            @Override
+            public void startBranch(String key) {
+                path.add(key);
+            }
+
+            @Override
+            public void endBranch() {
+                path.removeLast();
+            }
+        });
+
+        writeColumns(columns, writer);
+
+        ResultSet resultSet = resultSetAdapter.getResultSet();
+
+        int n = indices.size();
+
+        int i = 0;
+
+        while (resultSet.next()) {
+            writeRowStart(i, writer);
+
+            for (int j = 0; j < n; j++) {
+                if (j > 0) {
+                    writer.append(", ");
+                }
+
+                writeValue(resultSetAdapter.getValue(indices.get(j)), writer, ROW_DEPTH);
+            }
+
+            writer.append("]");
+
+            i++;
+        }
+
+        writeEnd(writer);
+    }
+
+    private void writeList(List<?> list, Writer writer) throws IOException {
+        Iterator<?> iterator = list.iterator();
+
+        if (!iterator.hasNext()) {
+            writeColumns(new ArrayList<Object>(), writer);
+            writeEnd(writer);
+
+            return;
+        }
+
+        Object first = iterator.next();
+
+        if (!(first instanceof Map<?, ?>)) {
+            // Not a list of rows; encode the elements as an ordinary array
+            super.writeValue(new ResumedList(first, iterator), writer);
+
+            return;
+        }
+
+        Map<?, ?> row = (Map<?, ?>)first;
+
+        ArrayList<Object> columns = new ArrayList<Object>(row.keySet());
+
+        writeColumns(columns, writer);
+
+        int i = 0;
+
+        while (row != null) {
+            writeRowStart(i, writer);
+
+            for (int j = 0, n = columns.size(); j < n; j++) {
+                if (j > 0) {
+                    writer.append(", ");
+                }
+
+                writeValue(row.get(columns.get(j)), writer, ROW_DEPTH);
+            }
+
+            writer.append("]");
+
+            i++;
+
+            if (iterator.hasNext()) {
+                Object element = iterator.next();
+
+                if (!(element instanceof Map<?, ?>)) {
+                    throw new IOException("Row is not a map.");
+                }
+
+                row = (Map<?, ?>)element;
+            } else {
+                row = null;
+            }
+        }
+
+        writeEnd(writer);
+    }
+
+    private void writeColumns(List<?> columns, Writer writer) throws IOException {
+        writer.append("{\n  \"columns\": [");
+
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            if (i > 0) {
+                writer.append(", ");
+            }
+
+            super.writeValue(String.valueOf(columns.get(i)), writer);
+        }
+
+        writer.append("],\n  \"rows\": [");
+    }
+
+    private void writeRowStart(int i, Writer writer) throws IOException {
+        if (i > 0) {
+            writer.append(",");
+        }
+
+        writer.append("\n    [");
+    }
+
+    private void writeEnd(Writer writer) throws IOException {
+        writer.append("\n  ]\n}");
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Encoder that writes a list as a stream of server-sent events. Each element
+ * of the list is sent as the data of a single event. After the last element,
+ * an "end" event is sent so that clients can tell a completed stream from an
+ * interrupted one.
+ */
+public class EventStreamEncoder extends NDJSONEncoder {
+    /**
+     * The event stream MIME type.
+     */
+    public static final String EVENT_STREAM_MIME_TYPE = "text/event-stream";
+
+    /**
+     * The name of the event that marks the end of the stream.
+     */
+    public static final String END_EVENT = "end";
+
+    @Override
+    protected String getMIMEType() {
+        return EVENT_STREAM_MIME_TYPE;
+    }
+
+    @Override
+    protected void writeRecord(Object value, Writer lineWriter, Writer writer) throws IOException {
+        writer.append("data: ");
+
+        super.writeRecord(value, lineWriter, writer);
+
+        writer.append("\n");
+    }
+
+    @Override
+    protected void writeEnd(Writer writer) throws IOException {
+        writer.append("event: ");
+        writer.append(END_EVENT);
+        writer.append("\ndata:\n\n");
+    }
+}
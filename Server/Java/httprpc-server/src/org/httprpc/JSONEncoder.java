@@ -17,16 +17,22 @@ package org.httprpc;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.httprpc.sql.ResultSetAdapter;
+
 /**
  * JSON encoder.
  */
@@ -112,6 +118,35 @@ public class JSONEncoder implements Encoder {
             writeValue(((LocalTime)value).format(DateTimeFormatter.ISO_LOCAL_TIME), writer);
         } else if (value instanceof LocalDateTime) {
             writeValue(((LocalDateTime)value).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), writer);
+        } else if (value instanceof ResultSetAdapter) {
+            ResultSetAdapter resultSetAdapter = (ResultSetAdapter)value;
+
+            Throwable failure = null;
+
+            try {
+                writeResultSet(resultSetAdapter, writer);
+            } catch (SQLException exception) {
+                IOException ioException = new IOException(exception);
+
+                failure = ioException;
+
+                throw ioException;
+            } catch (IOException | RuntimeException | Error exception) {
+                failure = exception;
+
+                throw exception;
+            } finally {
+                try {
+                    resultSetAdapter.close();
+                } catch (SQLException exception) {
+                    // Don't mask the exception that ended encoding
+                    if (failure != null) {
+                        failure.addSuppressed(exception);
+                    } else {
+                        throw new IOException(exception);
+                    }
+                }
+            }
         } else if (value instanceof List<?>) {
             List<?> list = (List<?>)value;
 
@@ -207,9 +242,155 @@ public class JSONEncoder implements Encoder {
         }
     }
 
+    private void writeResultSet(ResultSetAdapter resultSetAdapter, Writer writer) throws SQLException, IOException {
+        // Pre-render the text surrounding each column value
+        final ArrayList<String> textList = new ArrayList<>();
+        final ArrayList<Integer> columnList = new ArrayList<>();
+
+        depth++;
+
+        final StringBuilder text = new StringBuilder();
+
+        text.append("{");
+
+        depth++;
+
+        resultSetAdapter.accept(new ResultSetAdapter.RowVisitor() {
+            private boolean first = true;
+
+            @Override
+            public void visitColumn(String key, int index) throws IOException {
+                appendKey(key);
+
+                textList.add(text.toString());
+                columnList.add(index);
+
+                text.setLength(0);
+            }
+
+            @Override
+            public void startBranch(String key) throws IOException {
+                appendKey(key);
+
+                text.append("{");
+
+                depth++;
+
+                first = true;
+            }
+
+            @Override
+            public void endBranch() {
+                depth--;
+
+                text.append("\n");
+
+                indent(text);
+
+                text.append("}");
+
+                first = false;
+            }
+
+            private void appendKey(String key) throws IOException {
+                if (!first) {
+                    text.append(",");
+                }
+
+                first = false;
+
+                text.append("\n");
+
+                indent(text);
+
+                StringWriter keyWriter = new StringWriter();
+
+                writeValue(key, keyWriter);
+
+                text.append(keyWriter.toString());
+
+                text.append(": ");
+            }
+        });
+
+        depth--;
+
+        text.append("\n");
+
+        indent(text);
+
+        text.append("}");
+
+        textList.add(text.toString());
+
+        int n = columnList.size();
+
+        String[] texts = textList.toArray(new String[n + 1]);
+
+        int[] columns = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            columns[i] = columnList.get(i);
+        }
+
+        // Write rows
+        ResultSet resultSet = resultSetAdapter.getResultSet();
+
+        writer.append("[");
+
+        int i = 0;
+
+        while (resultSet.next()) {
+            if (i > 0) {
+                writer.append(",");
+            }
+
+            writer.append("\n");
+
+            indent(writer);
+
+            for (int j = 0; j < n; j++) {
+                writer.append(texts[j]);
+
+                writeValue(resultSetAdapter.getValue(columns[j]), writer);
+            }
+
+            writer.append(texts[n]);
+
+            i++;
+        }
+
+        depth--;
+
+        writer.append("\n");
+
+        indent(writer);
+
+        writer.append("]");
+    }
+
+    // Writes a value nested at the given depth
+    void writeValue(Object value, Writer writer, int depth) throws IOException {
+        int previous = this.depth;
+
+        this.depth = depth;
+
+        try {
+            writeValue(value, writer);
+        } finally {
+            this.depth = previous;
+        }
+    }
+
     private void indent(Writer writer) throws IOException {
         for (int i = 0; i < depth; i++) {
             writer.append("  ");
         }
     }
+
+    private void indent(StringBuilder text) {
+        for (int i = 0; i < depth; i++) {
+            text.append("  ");
+        }
+    }
 }
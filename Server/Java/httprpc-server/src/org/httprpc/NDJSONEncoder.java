@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Encoder that writes a list as newline-delimited JSON. Each element of the
+ * list is written as a single line of JSON, and the output is flushed after
+ * every element so that clients can process records as they arrive. Values
+ * other than lists are written as a single record.
+ */
+public class NDJSONEncoder implements Encoder {
+    // Writer that discards the line breaks and indentation produced by the JSON encoder
+    private static class LineWriter extends Writer {
+        private Writer writer;
+
+        private boolean indent = false;
+
+        public LineWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off, n = off + len; i < n; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            // JSON strings never contain raw line breaks, so any line break
+            // and the spaces that follow it are formatting
+            if (c == '\n') {
+                indent = true;
+            } else if (!(indent && c == ' ')) {
+                indent = false;
+
+                writer.write(c);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off, n = off + len; i < n; i++) {
+                write(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static final String UTF_8_ENCODING = "UTF-8";
+
+    /**
+     * The newline-delimited JSON MIME type.
+     */
+    public static final String NDJSON_MIME_TYPE = "application/x-ndjson";
+
+    private JSONEncoder jsonEncoder = new JSONEncoder();
+
+    @Override
+    public String getContentType(Object value) {
+        return String.format("%s;charset=%s", getMIMEType(), UTF_8_ENCODING);
+    }
+
+    /**
+     * Returns the MIME type of the content produced by the encoder.
+     *
+     * @return
+     * The encoder's MIME type.
+     */
+    protected String getMIMEType() {
+        return NDJSON_MIME_TYPE;
+    }
+
+    @Override
+    public void writeValue(Object value, OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, Charset.forName(UTF_8_ENCODING));
+
+        LineWriter lineWriter = new LineWriter(writer);
+
+        if (value instanceof List<?>) {
+            List<?> list = (List<?>)value;
+
+            Throwable failure = null;
+
+            try {
+                for (Object element : list) {
+                    writeRecord(element, lineWriter, writer);
+
+                    writer.flush();
+                }
+            } catch (IOException | RuntimeException | Error exception) {
+                failure = exception;
+
+                throw exception;
+            } finally {
+                if (list instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable)list).close();
+                    } catch (Exception exception) {
+                        // Don't mask the exception that ended the stream
+                        if (failure != null) {
+                            failure.addSuppressed(exception);
+                        } else {
+                            throw new IOException(exception);
+                        }
+                    }
+                }
+            }
+        } else {
+            writeRecord(value, lineWriter, writer);
+        }
+
+        writeEnd(writer);
+
+        writer.flush();
+    }
+
+    /**
+     * Writes a single record.
+     *
+     * @param value
+     * The record value.
+     *
+     * @param lineWriter
+     * A character stream that writes JSON on a single line.
+     *
+     * @param writer
+     * The underlying character stream.
+     *
+     * @throws IOException
+     * If an exception occurs.
+     */
+    protected void writeRecord(Object value, Writer lineWriter, Writer writer) throws IOException {
+        jsonEncoder.writeValue(value, lineWriter);
+
+        writer.append("\n");
+    }
+
+    /**
+     * Writes the end of the record stream.
+     *
+     * @param writer
+     * The character stream to write to.
+     *
+     * @throws IOException
+     * If an exception occurs.
+     */
+    protected void writeEnd(Writer writer) throws IOException {
+        // No-op
+    }
+}
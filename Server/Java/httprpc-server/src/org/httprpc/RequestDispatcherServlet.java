@@ -45,6 +45,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.Part;
 
+import org.httprpc.beans.BeanAdapter;
+import org.httprpc.sql.ConnectionPool;
+import org.httprpc.sql.Page;
+import org.httprpc.sql.ResultSetAdapter;
+import org.httprpc.template.TemplateCache;
 import org.httprpc.template.TemplateEncoder;
 
 /**
@@ -59,6 +64,7 @@ public class RequestDispatcherServlet extends HttpServlet {
     	public final HashMap<Method, String[]> methodParamNameMap = new HashMap<>();//by crabo
         public final HashMap<String, LinkedList<Method>> handlerMap = new HashMap<>();
         public final HashMap<String, Resource> resources = new HashMap<>();
+        public final HashMap<Class<?>, Binder> binderMap = new HashMap<>();
     }
 
     // User role set
@@ -111,6 +117,31 @@ public class RequestDispatcherServlet extends HttpServlet {
     private static final String MULTIPART_FORM_DATA_MIME_TYPE = "multipart/form-data";
 
     private static final String USER_AGENT_KEY = "User-Agent";
+    private static final String ACCEPT_KEY = "Accept";
+
+    private static final String FIELDS_PARAMETER = "fields";
+    private static final String ENCODING_PARAMETER = "encoding";
+
+    private static final String COLUMNAR_ENCODING = "columnar";
+
+    private static final String TEMPLATE_PARALLELISM_THRESHOLD_PARAMETER = "templateParallelismThreshold";
+    private static final String TEMPLATE_CACHE_MODE_PARAMETER = "templateCacheMode";
+
+    private static final String DATA_SOURCE_DRIVER_CLASS_NAME_PARAMETER = "dataSourceDriverClassName";
+    private static final String DATA_SOURCE_URL_PARAMETER = "dataSourceURL";
+    private static final String DATA_SOURCE_USER_PARAMETER = "dataSourceUser";
+    private static final String DATA_SOURCE_PASSWORD_PARAMETER = "dataSourcePassword";
+    private static final String DATA_SOURCE_MAXIMUM_POOL_SIZE_PARAMETER = "dataSourceMaximumPoolSize";
+    private static final String DATA_SOURCE_IDLE_TIMEOUT_PARAMETER = "dataSourceIdleTimeout";
+
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    private static final long DEFAULT_IDLE_TIMEOUT = 600000;
+
+    private int templateParallelismThreshold = 0;
+
+    private TemplateCache templateCache = null;
+
+    private ConnectionPool dataSource = null;
 
     @Override
     public void init() throws ServletException {
@@ -128,9 +159,56 @@ public class RequestDispatcherServlet extends HttpServlet {
             throw new ServletException("Invalid service type.");
         }
 
+        // Read template configuration
+        TemplateCache.Mode templateCacheMode = TemplateCache.Mode.PRODUCTION;
+
+        if (getServletConfig() != null) {
+            String threshold = getServletConfig().getInitParameter(TEMPLATE_PARALLELISM_THRESHOLD_PARAMETER);
+
+            if (threshold != null) {
+                templateParallelismThreshold = Integer.parseInt(threshold);
+            }
+
+            String mode = getServletConfig().getInitParameter(TEMPLATE_CACHE_MODE_PARAMETER);
+
+            if (mode != null) {
+                templateCacheMode = TemplateCache.Mode.valueOf(mode.toUpperCase());
+            }
+        }
+
+        templateCache = new TemplateCache(templateCacheMode);
+
+        // Create data source
+        if (getServletConfig() != null) {
+            String url = getServletConfig().getInitParameter(DATA_SOURCE_URL_PARAMETER);
+
+            if (url != null) {
+                String driverClassName = getServletConfig().getInitParameter(DATA_SOURCE_DRIVER_CLASS_NAME_PARAMETER);
+
+                if (driverClassName != null) {
+                    try {
+                        Class.forName(driverClassName);
+                    } catch (ClassNotFoundException exception) {
+                        throw new ServletException(exception);
+                    }
+                }
+
+                String maximumPoolSize = getServletConfig().getInitParameter(DATA_SOURCE_MAXIMUM_POOL_SIZE_PARAMETER);
+                String idleTimeout = getServletConfig().getInitParameter(DATA_SOURCE_IDLE_TIMEOUT_PARAMETER);
+
+                dataSource = new ConnectionPool(url,
+                    getServletConfig().getInitParameter(DATA_SOURCE_USER_PARAMETER),
+                    getServletConfig().getInitParameter(DATA_SOURCE_PASSWORD_PARAMETER),
+                    getIntParameter(DATA_SOURCE_MAXIMUM_POOL_SIZE_PARAMETER, maximumPoolSize, DEFAULT_MAXIMUM_POOL_SIZE),
+                    getLongParameter(DATA_SOURCE_IDLE_TIMEOUT_PARAMETER, idleTimeout, DEFAULT_IDLE_TIMEOUT));
+            }
+        }
+
         // Populate resource tree
         root = new Resource();
 
+        HashMap<Class<?>, Binder> binders = new HashMap<>();
+
         Method[] methods = serviceType.getMethods();
 
         for (int i = 0; i < methods.length; i++) {
@@ -173,6 +251,27 @@ public class RequestDispatcherServlet extends HttpServlet {
                 }
 
                 handlerList.add(method);
+
+                // Compile templates
+                if (templateCacheMode == TemplateCache.Mode.PRODUCTION) {
+                    Template[] templates = method.getAnnotationsByType(Template.class);
+
+                    for (int j = 0; j < templates.length; j++) {
+                        String name = templates[j].name();
+
+                        URL url = serviceType.getResource(name);
+
+                        if (url == null) {
+                            throw new ServletException("Template not found: " + name);
+                        }
+
+                        try {
+                            templateCache.compile(url);
+                        } catch (IOException exception) {
+                            throw new ServletException(exception);
+                        }
+                    }
+                }
                 
                //added by crabo
                 if(rpc.args().length>0){
@@ -191,8 +290,65 @@ public class RequestDispatcherServlet extends HttpServlet {
                 	
                 	resource.methodParamNameMap.put(method,names);
                 }
+
+                // Compile parameter binders
+                Class<?>[] parameterTypes = method.getParameterTypes();
+
+                for (int j = 0; j < parameterTypes.length; j++) {
+                    Binder binder;
+                    try {
+                        binder = Binder.getBinder(parameterTypes[j], binders);
+                    } catch (IllegalArgumentException exception) {
+                        throw new ServletException(exception.getMessage(), exception);
+                    }
+
+                    if (binder != null) {
+                        resource.binderMap.put(parameterTypes[j], binder);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int getIntParameter(String name, String value, int defaultValue) throws ServletException {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            throw new ServletException("Invalid value for " + name + ": " + value, exception);
+        }
+    }
+
+    private static long getLongParameter(String name, String value, long defaultValue) throws ServletException {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException exception) {
+            throw new ServletException("Invalid value for " + name + ": " + value, exception);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+
+        if (templateCache != null) {
+            try {
+                templateCache.close();
+            } catch (IOException exception) {
+                log(getClass().getName(), exception);
             }
         }
+
+        super.destroy();
     }
 
     @Override
@@ -309,6 +465,24 @@ public class RequestDispatcherServlet extends HttpServlet {
             }
         }
 
+        // Extract projection
+        String fields = null;
+
+        if (parameterMap.containsKey(FIELDS_PARAMETER) && !declaresParameter(resource, handlerList, FIELDS_PARAMETER)) {
+            fields = parameterMap.remove(FIELDS_PARAMETER)[0];
+
+            if (fields.trim().isEmpty()) {
+                fields = null;
+            }
+        }
+
+        // Extract encoding
+        String encodingName = null;
+
+        if (parameterMap.containsKey(ENCODING_PARAMETER) && !declaresParameter(resource, handlerList, ENCODING_PARAMETER)) {
+            encodingName = parameterMap.remove(ENCODING_PARAMETER)[0];
+        }
+
         // Invoke handler method
         Method method = getMethod(resource,handlerList, parameterMap, fileMap);
 
@@ -335,15 +509,20 @@ public class RequestDispatcherServlet extends HttpServlet {
                         Template template = templates[i];
 
                         if (template.contentType().equals(mimeType) && userAgent.matches(template.userAgent())) {
-                            encoder = new TemplateEncoder(serviceType.getResource(template.name()), mimeType, serviceType.getName());
+                            TemplateEncoder templateEncoder = new TemplateEncoder(serviceType.getResource(template.name()), mimeType, serviceType.getName());
+
+                            templateEncoder.setTemplateCache(templateCache);
+                            templateEncoder.setParallelismThreshold(templateParallelismThreshold);
 
-                            Map<String, Object> context = ((TemplateEncoder)encoder).getContext();
+                            Map<String, Object> context = templateEncoder.getContext();
 
                             context.put("scheme", request.getScheme());
                             context.put("serverName", request.getServerName());
                             context.put("serverPort", request.getServerPort());
                             context.put("contextPath", request.getContextPath());
 
+                            encoder = templateEncoder;
+
                             break;
                         }
                     }
@@ -367,8 +546,24 @@ public class RequestDispatcherServlet extends HttpServlet {
                         response.getWriter().append("API ENCODER ERROR");
                         return;
                     }
+                } else if (encodingName != null) {
+                    if (!encodingName.equals(COLUMNAR_ENCODING)) {
+                        response.setStatus(HttpServletResponse.SC_NOT_ACCEPTABLE);
+                        response.getWriter().append("API NOT ACCEPTABLE");
+                        return;
+                    }
+
+                    encoder = new ColumnarJSONEncoder();
                 } else {
-                    encoder = new JSONEncoder();
+                    String accept = request.getHeader(ACCEPT_KEY);
+
+                    if (accept != null && accept.contains(NDJSONEncoder.NDJSON_MIME_TYPE)) {
+                        encoder = new NDJSONEncoder();
+                    } else if (accept != null && accept.contains(EventStreamEncoder.EVENT_STREAM_MIME_TYPE)) {
+                        encoder = new EventStreamEncoder();
+                    } else {
+                        encoder = new JSONEncoder();
+                    }
                 }
             }
         }
@@ -381,6 +576,7 @@ public class RequestDispatcherServlet extends HttpServlet {
                     service = (WebService)serviceType.newInstance();
 
                     service.setLocale(request.getLocale());
+                    service.setDataSource(dataSource);
 
                     Principal userPrincipal = request.getUserPrincipal();
 
@@ -411,6 +607,11 @@ public class RequestDispatcherServlet extends HttpServlet {
             if (returnType == Void.TYPE || returnType == Void.class) {
                 response.setStatus(HttpServletResponse.SC_NO_CONTENT);
             } else {
+                // Result sets and pages are written as-is, so they keep their streaming behavior
+                if (fields != null && !(result instanceof ResultSetAdapter || result instanceof Page)) {
+                    result = BeanAdapter.adapt(result, fields);
+                }
+
                 response.setContentType(encoder.getContentType(result));
 
                 try {
@@ -453,28 +654,59 @@ public class RequestDispatcherServlet extends HttpServlet {
         	String[] parameterNames = resource.methodParamNameMap.get(handler);
             //Parameter[] parameters = handler.getParameters();
 
-            if (parameterNames.length >= n) {
-                int j = 0;
+            if (parameterNames == null) {
+                parameterNames = new String[0];
+            }
 
-                for (int k = 0; k < parameterNames.length; k++) {
-                    String name = parameterNames[k];//.getName();
+            Class<?>[] parameterTypes = handler.getParameterTypes();
 
-                    if (!(parameterMap.containsKey(name) || fileMap.containsKey(name))) {
-                        j++;
-                    }
-                }
+            int j = 0;
+            int m = 0;
 
-                if (parameterNames.length - j == n && j < i) {
-                    method = handler;
+            for (int k = 0; k < parameterNames.length; k++) {
+                String name = parameterNames[k];//.getName();
 
-                    i = j;
+                int count;
+                if (resource.binderMap.containsKey(parameterTypes[k])) {
+                    // Bean and record arguments consume every parameter under their prefix
+                    count = Binder.getCount(parameterMap, name + ".");
+                } else {
+                    count = (parameterMap.containsKey(name) || fileMap.containsKey(name)) ? 1 : 0;
+                }
+
+                if (count == 0) {
+                    j++;
                 }
+
+                m += count;
+            }
+
+            if (m == n && j < i) {
+                method = handler;
+
+                i = j;
             }
         }
 
         return method;
     }
 
+    private static boolean declaresParameter(Resource resource, LinkedList<Method> handlerList, String name) {
+        for (Method handler : handlerList) {
+            String[] parameterNames = resource.methodParamNameMap.get(handler);
+
+            if (parameterNames != null) {
+                for (int i = 0; i < parameterNames.length; i++) {
+                    if (parameterNames[i].equals(name)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     private static Object[] getArguments(Resource resource,HttpServletRequest request,Method method, HashMap<String, String[]> parameterMap,
         HashMap<String, LinkedList<File>> fileMap) throws IOException {
     	//by crabo
@@ -536,6 +768,8 @@ public class RequestDispatcherServlet extends HttpServlet {
                 }
             } else if (type==HttpServletRequest.class){
             	argument=request;
+            } else if (resource.binderMap.containsKey(type)) {
+                argument = resource.binderMap.get(type).bind(name + ".", parameterMap);
             }else {
             	String[] values = parameterMap.get(name);
             	String value=values==null?null:values[0];
@@ -558,7 +792,26 @@ public class RequestDispatcherServlet extends HttpServlet {
         return arguments;
     }
 
-    private static Object getArgument(String value, Type type) {
+    static Object getArgument(String[] values, Type type) {
+        Object argument;
+        if (type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() == List.class) {
+            Type elementType = ((ParameterizedType)type).getActualTypeArguments()[0];
+
+            List<Object> list = new ArrayList<>(values.length);
+
+            for (int i = 0; i < values.length; i++) {
+                list.add(getArgument(values[i], elementType));
+            }
+
+            argument = list;
+        } else {
+            argument = getArgument(values[0], type);
+        }
+
+        return argument;
+    }
+
+    static Object getArgument(String value, Type type) {
         Object argument;
         if (type == String.class) {
             argument = value;
@@ -23,6 +23,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import javax.sql.DataSource;
+
 /**
  * Abstract base class for HTTP-RPC web services.
  */
@@ -32,6 +34,8 @@ public abstract class WebService {
     private String userName = null;
     private Set<String> userRoles = null;
 
+    private DataSource dataSource = null;
+
     /**
      * Returns the locale associated with the current request.
      *
@@ -95,6 +99,26 @@ public abstract class WebService {
         this.userRoles = roles;
     }
 
+    /**
+     * Returns the data source configured for the service.
+     *
+     * @return
+     * The data source, or <tt>null</tt> if no data source has been configured.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Sets the data source configured for the service.
+     *
+     * @param dataSource
+     * The data source, or <tt>null</tt> for no data source.
+     */
+    protected void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
     /**
      * Creates a list from a variable length array of elements.
      *
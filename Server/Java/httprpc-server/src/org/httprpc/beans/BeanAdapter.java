@@ -14,37 +14,58 @@
 
 package org.httprpc.beans;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.time.temporal.TemporalAccessor;
 import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 
 /**
  * Class that presents the properties of a Java Bean object as a map. Property
  * values are adapted as described for {@link #adapt(Object)}.
+ * <p>
+ * Properties are defined by public getter methods, public instance fields,
+ * and record components. Record components are listed in declaration order,
+ * followed by any remaining properties in alphabetical order. A getter takes
+ * precedence over a field with the same name.
  */
 public class BeanAdapter extends AbstractMap<String, Object> {
     // List adapter
-    private static class ListAdapter extends AbstractList<Object> {
+    private static class ListAdapter extends AbstractList<Object> implements AutoCloseable {
         private List<Object> list;
-        private HashMap<Class<?>, HashMap<String, Method>> getterCache;
+        private boolean memoize;
+        private Projection projection;
 
-        public ListAdapter(List<Object> list, HashMap<Class<?>, HashMap<String, Method>> getterCache) {
+        public ListAdapter(List<Object> list, boolean memoize, Projection projection) {
             this.list = list;
-            this.getterCache = getterCache;
+            this.memoize = memoize;
+            this.projection = projection;
         }
 
         @Override
         public Object get(int index) {
-            return adapt(list.get(index), getterCache);
+            return adapt(list.get(index), memoize, projection);
         }
 
         @Override
@@ -64,25 +85,57 @@ public class BeanAdapter extends AbstractMap<String, Object> {
 
                 @Override
                 public Object next() {
-                    return adapt(iterator.next(), getterCache);
+                    return adapt(iterator.next(), memoize, projection);
                 }
             };
         }
+
+        @Override
+        public void close() {
+            if (list instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable)list).close();
+                } catch (Exception exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        }
     }
 
     // Map adapter
-    private static class MapAdapter extends AbstractMap<Object, Object> {
+    private static class MapAdapter extends AbstractMap<Object, Object> implements AutoCloseable {
         private Map<Object, Object> map;
-        private HashMap<Class<?>, HashMap<String, Method>> getterCache;
+        private boolean memoize;
+        private Projection projection;
+
+        private ArrayList<Object> keys = null;
 
         private Set<Entry<Object, Object>> entrySet = new AbstractSet<Entry<Object, Object>>() {
             @Override
             public int size() {
-                return map.size();
+                return (keys == null) ? map.size() : keys.size();
             }
 
             @Override
             public Iterator<Entry<Object, Object>> iterator() {
+                if (keys != null) {
+                    return new Iterator<Entry<Object, Object>>() {
+                        private Iterator<Object> iterator = keys.iterator();
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            Object key = iterator.next();
+
+                            return new SimpleImmutableEntry<>(key, get(key));
+                        }
+                    };
+                }
+
                 return new Iterator<Entry<Object, Object>>() {
                     private Iterator<Entry<Object, Object>> iterator = map.entrySet().iterator();
 
@@ -103,7 +156,7 @@ public class BeanAdapter extends AbstractMap<String, Object> {
 
                             @Override
                             public Object getValue() {
-                                return adapt(entry.getValue(), getterCache);
+                                return adapt(entry.getValue(), memoize, null);
                             }
 
                             @Override
@@ -116,48 +169,249 @@ public class BeanAdapter extends AbstractMap<String, Object> {
             }
         };
 
-        public MapAdapter(Map<Object, Object> map, HashMap<Class<?>, HashMap<String, Method>> getterCache) {
+        public MapAdapter(Map<Object, Object> map, boolean memoize, Projection projection) {
             this.map = map;
-            this.getterCache = getterCache;
+            this.memoize = memoize;
+            this.projection = projection;
+
+            if (projection != null) {
+                keys = new ArrayList<>(projection.size());
+
+                for (Object key : map.keySet()) {
+                    if (projection.containsKey(key)) {
+                        keys.add(key);
+                    }
+                }
+            }
         }
 
         @Override
         public Object get(Object key) {
-            return adapt(map.get(key), getterCache);
+            Object value;
+            if (projection == null) {
+                value = adapt(map.get(key), memoize, null);
+            } else if (projection.containsKey(key)) {
+                value = adapt(map.get(key), memoize, projection.get(key));
+            } else {
+                value = null;
+            }
+
+            return value;
         }
 
         @Override
         public Set<Entry<Object, Object>> entrySet() {
             return entrySet;
         }
+
+        @Override
+        public void close() {
+            if (map instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable)map).close();
+                } catch (Exception exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        }
+    }
+
+    // Projection
+    private static class Projection extends LinkedHashMap<String, Projection> {
+        private static final long serialVersionUID = 0;
+
+        public static Projection parse(String fields) {
+            Projection projection = new Projection();
+
+            String[] paths = fields.split(",");
+
+            for (int i = 0; i < paths.length; i++) {
+                String path = paths[i].trim();
+
+                if (path.length() == 0) {
+                    continue;
+                }
+
+                String[] components = path.split("\\.");
+
+                Projection parent = projection;
+
+                for (int j = 0; j < components.length; j++) {
+                    String component = components[j].trim();
+
+                    if (component.length() == 0) {
+                        throw new IllegalArgumentException("Invalid field path: " + path);
+                    }
+
+                    if (j == components.length - 1) {
+                        parent.put(component, null);
+                    } else {
+                        Projection child = parent.get(component);
+
+                        if (child == null) {
+                            if (parent.containsKey(component)) {
+                                break;
+                            }
+
+                            child = new Projection();
+
+                            parent.put(component, child);
+                        }
+
+                        parent = child;
+                    }
+                }
+            }
+
+            return projection;
+        }
+    }
+
+    // Snapshot list
+    private static class SnapshotList extends AbstractList<Object> implements RandomAccess {
+        private final Object[] elements;
+
+        public SnapshotList(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public Object get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
+
+    // Snapshot map
+    private static class SnapshotMap extends AbstractMap<Object, Object> {
+        private final Object[] keys;
+        private final Map<?, Integer> ordinals;
+        private final Object[] values;
+
+        private final Set<Entry<Object, Object>> entrySet = new AbstractSet<Entry<Object, Object>>() {
+            @Override
+            public int size() {
+                return keys.length;
+            }
+
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                return new Iterator<Entry<Object, Object>>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < keys.length;
+                    }
+
+                    @Override
+                    public Entry<Object, Object> next() {
+                        if (i == keys.length) {
+                            throw new NoSuchElementException();
+                        }
+
+                        Entry<Object, Object> entry = new SimpleImmutableEntry<>(keys[i], values[i]);
+
+                        i++;
+
+                        return entry;
+                    }
+                };
+            }
+        };
+
+        public SnapshotMap(Object[] keys, Map<?, Integer> ordinals, Object[] values) {
+            this.keys = keys;
+            this.ordinals = ordinals;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer ordinal = ordinals.get(key);
+
+            return (ordinal == null) ? null : values[ordinal];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ordinals.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    // Property table
+    private static class PropertyTable {
+        public final String[] keys;
+        public final HashMap<String, Integer> ordinals;
+        public final ArrayList<Function<Object, Object>> accessors;
+
+        public PropertyTable(Map<String, Function<Object, Object>> getters) {
+            int n = getters.size();
+
+            keys = new String[n];
+            ordinals = new HashMap<>(n * 4 / 3 + 1);
+            accessors = new ArrayList<>(n);
+
+            int i = 0;
+
+            for (Entry<String, Function<Object, Object>> entry : getters.entrySet()) {
+                String key = entry.getKey();
+
+                keys[i] = key;
+                ordinals.put(key, i);
+                accessors.add(entry.getValue());
+
+                i++;
+            }
+        }
     }
 
     private Object bean;
-    private HashMap<Class<?>, HashMap<String, Method>> getterCache;
+    private boolean memoize;
+    private Projection projection;
+
+    private PropertyTable properties;
 
-    private HashMap<String, Method> getters;
+    private int[] ordinals = null;
+
+    private Object[] values = null;
 
     private Set<Entry<String, Object>> entrySet = new AbstractSet<Entry<String, Object>>() {
         @Override
         public int size() {
-            return getters.size();
+            return (ordinals == null) ? properties.keys.length : ordinals.length;
         }
 
         @Override
         public Iterator<Entry<String, Object>> iterator() {
             return new Iterator<Entry<String, Object>>() {
-                private Iterator<String> keys = getters.keySet().iterator();
+                private int i = 0;
 
                 @Override
                 public boolean hasNext() {
-                    return keys.hasNext();
+                    return i < size();
                 }
 
                 @Override
                 public Entry<String, Object> next() {
-                    String key = keys.next();
+                    if (i == size()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    int ordinal = (ordinals == null) ? i : ordinals[i];
 
-                    return new SimpleImmutableEntry<>(key, get(key));
+                    i++;
+
+                    return new SimpleImmutableEntry<>(properties.keys[ordinal], getValue(ordinal));
                 }
             };
         }
@@ -166,30 +420,29 @@ public class BeanAdapter extends AbstractMap<String, Object> {
     private static final String GET_PREFIX = "get";
     private static final String IS_PREFIX = "is";
 
-    /**
-     * Constructs a new Bean adapter.
-     *
-     * @param bean
-     * The source Bean.
-     */
-    public BeanAdapter(Object bean) {
-        this(bean, new HashMap<Class<?>, HashMap<String, Method>>());
-    }
+    private static final String RECORD_CLASS_NAME = "java.lang.Record";
+    private static final String RECORD_COMPONENT_CLASS_NAME = "java.lang.reflect.RecordComponent";
 
-    private BeanAdapter(Object bean, HashMap<Class<?>, HashMap<String, Method>> getterCache) {
-        if (bean == null) {
-            throw new IllegalArgumentException();
-        }
+    private static final Object UNRESOLVED = new Object();
 
-        this.bean = bean;
-        this.getterCache = getterCache;
+    private static ClassValue<PropertyTable> propertyCache = new ClassValue<PropertyTable>() {
+        @Override
+        protected PropertyTable computeValue(Class<?> type) {
+            TreeMap<String, Function<Object, Object>> getters = new TreeMap<>();
 
-        Class<?> type = bean.getClass();
+            Field[] fields = type.getFields();
 
-        getters = getterCache.get(type);
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
 
-        if (getters == null) {
-            getters = new HashMap<>();
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    Function<Object, Object> accessor = getAccessor(field);
+
+                    if (accessor != null) {
+                        getters.put(field.getName(), accessor);
+                    }
+                }
+            }
 
             Method[] methods = type.getMethods();
 
@@ -221,13 +474,166 @@ public class BeanAdapter extends AbstractMap<String, Object> {
 
                             String key = c + methodName.substring(j);
 
-                            getters.put(key, method);
+                            getters.put(key, getAccessor(method));
                         }
                     }
                 }
             }
 
-            getterCache.put(type, getters);
+            LinkedHashMap<String, Function<Object, Object>> properties = new LinkedHashMap<>();
+
+            Class<?> superclass = type.getSuperclass();
+
+            if (superclass != null && superclass.getName().equals(RECORD_CLASS_NAME)) {
+                try {
+                    Method getName = Class.forName(RECORD_COMPONENT_CLASS_NAME).getMethod("getName");
+                    Method getAccessor = Class.forName(RECORD_COMPONENT_CLASS_NAME).getMethod("getAccessor");
+
+                    Object[] components = (Object[])Class.class.getMethod("getRecordComponents").invoke(type);
+
+                    for (int i = 0; i < components.length; i++) {
+                        properties.put((String)getName.invoke(components[i]), getAccessor((Method)getAccessor.invoke(components[i])));
+                    }
+                } catch (ReflectiveOperationException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+
+            for (Entry<String, Function<Object, Object>> entry : getters.entrySet()) {
+                if (!properties.containsKey(entry.getKey())) {
+                    properties.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            return new PropertyTable(properties);
+        }
+    };
+
+    private static Function<Object, Object> getAccessor(Field field) {
+        MethodHandle methodHandle;
+        try {
+            methodHandle = MethodHandles.publicLookup().unreflectGetter(field);
+        } catch (IllegalAccessException exception) {
+            return null;
+        }
+
+        final MethodHandle getter = methodHandle.asType(MethodType.methodType(Object.class, Object.class));
+
+        return new Function<Object, Object>() {
+            @Override
+            public Object apply(Object bean) {
+                try {
+                    return (Object)getter.invokeExact(bean);
+                } catch (RuntimeException | Error exception) {
+                    throw exception;
+                } catch (Throwable exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getAccessor(final Method method) {
+        Class<?> type = method.getDeclaringClass();
+
+        if (Modifier.isPublic(type.getModifiers()) && isVisible(type)) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                MethodHandle methodHandle = lookup.unreflect(method);
+
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    methodHandle,
+                    MethodType.methodType(Object.class, type));
+
+                return (Function<Object, Object>)callSite.getTarget().invoke();
+            } catch (Throwable exception) {
+                // Fall back to reflection
+            }
+        }
+
+        return new Function<Object, Object>() {
+            @Override
+            public Object apply(Object bean) {
+                try {
+                    return method.invoke(bean);
+                } catch (InvocationTargetException exception) {
+                    // Propagate the getter's exception as the generated accessors do
+                    Throwable cause = exception.getCause();
+
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error)cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                } catch (IllegalAccessException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        };
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, BeanAdapter.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Constructs a new Bean adapter.
+     *
+     * @param bean
+     * The source Bean.
+     */
+    public BeanAdapter(Object bean) {
+        this(bean, false);
+    }
+
+    /**
+     * Constructs a new Bean adapter.
+     *
+     * @param bean
+     * The source Bean.
+     *
+     * @param memoize
+     * <tt>true</tt> if property values should be retrieved at most once and
+     * retained by the adapter; <tt>false</tt>, otherwise. Nested adapters
+     * inherit this setting. Memoizing adapters are not thread-safe.
+     */
+    public BeanAdapter(Object bean, boolean memoize) {
+        this(bean, memoize, null);
+    }
+
+    private BeanAdapter(Object bean, boolean memoize, Projection projection) {
+        if (bean == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.bean = bean;
+        this.memoize = memoize;
+        this.projection = projection;
+
+        properties = propertyCache.get(bean.getClass());
+
+        if (projection != null) {
+            int[] ordinals = new int[projection.size()];
+
+            int n = 0;
+
+            for (int i = 0; i < properties.keys.length && n < ordinals.length; i++) {
+                if (projection.containsKey(properties.keys[i])) {
+                    ordinals[n++] = i;
+                }
+            }
+
+            this.ordinals = Arrays.copyOf(ordinals, n);
         }
     }
 
@@ -237,15 +643,11 @@ public class BeanAdapter extends AbstractMap<String, Object> {
             throw new IllegalArgumentException();
         }
 
-        Method method = getters.get(key);
+        Integer ordinal = properties.ordinals.get(key);
 
         Object value;
-        if (method != null) {
-            try {
-                value = adapt(method.invoke(bean), getterCache);
-            } catch (InvocationTargetException | IllegalAccessException exception) {
-                throw new RuntimeException(exception);
-            }
+        if (ordinal != null && (projection == null || projection.containsKey(key))) {
+            value = getValue(ordinal);
         } else {
             value = null;
         }
@@ -253,6 +655,42 @@ public class BeanAdapter extends AbstractMap<String, Object> {
         return value;
     }
 
+    private Object getValue(int ordinal) {
+        Object value;
+        if (memoize) {
+            if (values == null) {
+                values = new Object[properties.keys.length];
+
+                Arrays.fill(values, UNRESOLVED);
+            }
+
+            value = values[ordinal];
+
+            if (value == UNRESOLVED) {
+                value = resolve(ordinal);
+
+                values[ordinal] = value;
+            }
+        } else {
+            value = resolve(ordinal);
+        }
+
+        return value;
+    }
+
+    private Object resolve(int ordinal) {
+        try {
+            Object value = properties.accessors.get(ordinal).apply(bean);
+
+            return adapt(value, memoize, (projection == null) ? null : projection.get(properties.keys[ordinal]));
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Exception exception) {
+            // Generated accessors rethrow a getter's checked exceptions as-is
+            throw new RuntimeException(exception);
+        }
+    }
+
     @Override
     public Set<Entry<String, Object>> entrySet() {
         return entrySet;
@@ -283,11 +721,61 @@ public class BeanAdapter extends AbstractMap<String, Object> {
      * The adapted value.
      */
     public static <T> T adapt(Object value) {
-        return adapt(value, new HashMap<Class<?>, HashMap<String, Method>>());
+        return adapt(value, false);
+    }
+
+    /**
+     * Adapts a value as described for {@link #adapt(Object)}.
+     *
+     * @param <T> The expected type of the adapted value.
+     *
+     * @param value
+     * The value to adapt.
+     *
+     * @param memoize
+     * <tt>true</tt> if Bean property values should be memoized; <tt>false</tt>,
+     * otherwise.
+     *
+     * @return
+     * The adapted value.
+     *
+     * @see #BeanAdapter(Object, boolean)
+     */
+    public static <T> T adapt(Object value, boolean memoize) {
+        return adapt(value, memoize, null);
+    }
+
+    /**
+     * Adapts a value as described for {@link #adapt(Object)}, limiting the
+     * properties of adapted Beans and maps to the given fields.
+     *
+     * @param <T> The expected type of the adapted value.
+     *
+     * @param value
+     * The value to adapt.
+     *
+     * @param fields
+     * A comma-separated list of the fields to include. Nested fields may be
+     * specified using dot notation; for example, "id,title,owner.name". Fields
+     * that are not selected are neither retrieved nor adapted. Lists are
+     * projected element-wise. Selected fields are returned in the source's
+     * order. If no fields are listed, the value is adapted without projection.
+     *
+     * @return
+     * The adapted value.
+     */
+    public static <T> T adapt(Object value, String fields) {
+        if (fields == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Projection projection = Projection.parse(fields);
+
+        return adapt(value, false, projection.isEmpty() ? null : projection);
     }
 
     @SuppressWarnings("unchecked")
-    private static <T> T adapt(Object value, HashMap<Class<?>, HashMap<String, Method>> getterCache) {
+    private static <T> T adapt(Object value, boolean memoize, Projection projection) {
         if (!(value == null
             || value instanceof String
             || value instanceof Number
@@ -296,11 +784,104 @@ public class BeanAdapter extends AbstractMap<String, Object> {
             || value instanceof Date
             || value instanceof TemporalAccessor)) {
             if (value instanceof List<?>) {
-                value = new ListAdapter((List<Object>)value, getterCache);
+                value = new ListAdapter((List<Object>)value, memoize, projection);
             } else if (value instanceof Map<?, ?>) {
-                value = new MapAdapter((Map<Object, Object>)value, getterCache);
+                value = new MapAdapter((Map<Object, Object>)value, memoize, projection);
             } else {
-                value = new BeanAdapter(value, getterCache);
+                value = new BeanAdapter(value, memoize, projection);
+            }
+        }
+
+        return (T)value;
+    }
+
+    /**
+     * Creates an immutable snapshot of a value. Values are converted as
+     * described for {@link #adapt(Object)}; however, rather than being
+     * wrapped in adapters, lists, maps, and Beans are copied eagerly into
+     * compact array-backed structures. Beans of the same type share a single
+     * key table. The snapshot does not refer to the source value and may be
+     * cached or shared between threads. Closeable lists and maps are closed
+     * once they have been copied.
+     *
+     * @param <T> The expected type of the snapshot.
+     *
+     * @param value
+     * The value to snapshot.
+     *
+     * @return
+     * The snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T snapshot(Object value) {
+        if (!(value == null
+            || value instanceof String
+            || value instanceof Number
+            || value instanceof Boolean
+            || value instanceof Enum<?>
+            || value instanceof Date
+            || value instanceof TemporalAccessor)) {
+            Object source = value;
+
+            try {
+                if (value instanceof List<?>) {
+                    ArrayList<Object> elements = new ArrayList<>();
+
+                    for (Object element : (List<?>)value) {
+                        elements.add(snapshot(element));
+                    }
+
+                    value = new SnapshotList(elements.toArray());
+                } else if (value instanceof Map<?, ?>) {
+                    Map<?, ?> map = (Map<?, ?>)value;
+
+                    int n = map.size();
+
+                    Object[] keys = new Object[n];
+                    HashMap<Object, Integer> ordinals = new HashMap<>(n * 4 / 3 + 1);
+                    Object[] values = new Object[n];
+
+                    int i = 0;
+
+                    for (Entry<?, ?> entry : map.entrySet()) {
+                        Object key = entry.getKey();
+
+                        keys[i] = key;
+                        ordinals.put(key, i);
+                        values[i] = snapshot(entry.getValue());
+
+                        i++;
+                    }
+
+                    value = new SnapshotMap(keys, ordinals, values);
+                } else {
+                    PropertyTable properties = propertyCache.get(value.getClass());
+
+                    int n = properties.keys.length;
+
+                    Object[] values = new Object[n];
+
+                    for (int i = 0; i < n; i++) {
+                        try {
+                            values[i] = snapshot(properties.accessors.get(i).apply(value));
+                        } catch (RuntimeException | Error exception) {
+                            throw exception;
+                        } catch (Exception exception) {
+                            // Generated accessors rethrow a getter's checked exceptions as-is
+                            throw new RuntimeException(exception);
+                        }
+                    }
+
+                    value = new SnapshotMap(properties.keys, properties.ordinals, values);
+                }
+            } finally {
+                if (source instanceof AutoCloseable && (source instanceof List<?> || source instanceof Map<?, ?>)) {
+                    try {
+                        ((AutoCloseable)source).close();
+                    } catch (Exception exception) {
+                        throw new RuntimeException(exception);
+                    }
+                }
             }
         }
 
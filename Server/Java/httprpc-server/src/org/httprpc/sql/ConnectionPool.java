@@ -0,0 +1,773 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Data source that maintains a bounded pool of JDBC connections.
+ * <p>
+ * Connections returned by {@link #getConnection()} are returned to the pool
+ * when they are closed. Closing a {@link ResultSetAdapter} whose statement
+ * was created by a pooled connection also returns the connection to the pool.
+ * Statements created by a pooled connection, and their result sets, report
+ * the pooled connection rather than the physical connection, as does
+ * {@link Connection#unwrap(Class)}. Idle connections are validated before they
+ * are reused and are closed once they have been idle for longer than the idle
+ * timeout. Statements prepared by {@link Parameters#prepare(Connection)} are
+ * cached with the physical connection and closed along with it.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    // Statement cache
+    private static class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+        private static final long serialVersionUID = 0;
+
+        public StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> entry) {
+            if (size() > STATEMENT_CACHE_CAPACITY) {
+                try {
+                    entry.getValue().close();
+                } catch (SQLException exception) {
+                    // No-op
+                }
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    // Pooled connection
+    private static class PooledConnection {
+        public final Connection connection;
+        public final StatementCache statementCache = new StatementCache();
+        public volatile long lastUsed;
+
+        public PooledConnection(Connection connection) {
+            this.connection = connection;
+
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    // Connection handle
+    private class Handle implements InvocationHandler {
+        private PooledConnection pooledConnection;
+
+        private boolean closed = false;
+
+        public Handle(PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+            String methodName = method.getName();
+
+            switch (methodName) {
+                case "close": {
+                    close();
+
+                    return null;
+                }
+
+                case "isClosed": {
+                    return isClosed();
+                }
+
+                case "equals": {
+                    return proxy == arguments[0];
+                }
+
+                case "hashCode": {
+                    return System.identityHashCode(proxy);
+                }
+
+                case "toString": {
+                    return String.format("%s[%s]", getClass().getName(), pooledConnection.connection);
+                }
+
+                case "unwrap": {
+                    if (((Class<?>)arguments[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+
+                    break;
+                }
+
+                case "isWrapperFor": {
+                    if (((Class<?>)arguments[0]).isInstance(proxy)) {
+                        return true;
+                    }
+
+                    break;
+                }
+
+                default: {
+                    break;
+                }
+            }
+
+            if (isClosed()) {
+                throw new SQLException("Connection is closed.");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(pooledConnection.connection, arguments);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+
+            // Statements report the pooled connection rather than the physical connection
+            if (result instanceof Statement) {
+                result = wrap(result, method.getReturnType(), proxy, "getConnection", false);
+            }
+
+            return result;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+
+                closed = true;
+            }
+
+            release(pooledConnection);
+        }
+    }
+
+    // Statement or result set handle
+    private static class ChildHandle implements InvocationHandler {
+        private Object target;
+        private Object parent;
+        private String parentMethodName;
+        private boolean cached;
+
+        public ChildHandle(Object target, Object parent, String parentMethodName, boolean cached) {
+            this.target = target;
+            this.parent = parent;
+            this.parentMethodName = parentMethodName;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+            String methodName = method.getName();
+
+            if (methodName.equals(parentMethodName) && method.getParameterTypes().length == 0) {
+                return parent;
+            }
+
+            switch (methodName) {
+                case "equals": {
+                    return proxy == arguments[0];
+                }
+
+                case "hashCode": {
+                    return System.identityHashCode(proxy);
+                }
+
+                case "unwrap": {
+                    if (((Class<?>)arguments[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+
+                    break;
+                }
+
+                case "isWrapperFor": {
+                    if (((Class<?>)arguments[0]).isInstance(proxy)) {
+                        return true;
+                    }
+
+                    break;
+                }
+
+                default: {
+                    break;
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, arguments);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+
+            // Result sets report the wrapped statement
+            if (target instanceof Statement && result instanceof ResultSet) {
+                result = wrap(result, ResultSet.class, proxy, "getStatement", false);
+            }
+
+            return result;
+        }
+    }
+
+    private String url;
+    private String user;
+    private String password;
+
+    private int maximumPoolSize;
+    private long idleTimeout;
+
+    private long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+
+    // Most recently used connections are at the head, so surplus connections age out at the tail
+    private ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private AtomicInteger size = new AtomicInteger(0);
+
+    private final Object lock = new Object();
+    private AtomicInteger waiters = new AtomicInteger(0);
+
+    private ScheduledExecutorService evictionExecutor;
+
+    private volatile boolean closed = false;
+
+    // Retained for data source clients; not used by the pool
+    private volatile PrintWriter logWriter = null;
+    private volatile int loginTimeout = 0;
+
+    private static final long DEFAULT_IDLE_TIMEOUT = 600000;
+    private static final long DEFAULT_CONNECTION_TIMEOUT = 30000;
+
+    private static final long VALIDATION_INTERVAL = 1000;
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private static final int STATEMENT_CACHE_CAPACITY = 64;
+
+    /**
+     * Constructs a new connection pool.
+     *
+     * @param url
+     * The JDBC URL of the database.
+     *
+     * @param user
+     * The database user, or <tt>null</tt> for none.
+     *
+     * @param password
+     * The user's password, or <tt>null</tt> for none.
+     *
+     * @param maximumPoolSize
+     * The maximum number of connections the pool will open.
+     */
+    public ConnectionPool(String url, String user, String password, int maximumPoolSize) {
+        this(url, user, password, maximumPoolSize, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructs a new connection pool.
+     *
+     * @param url
+     * The JDBC URL of the database.
+     *
+     * @param user
+     * The database user, or <tt>null</tt> for none.
+     *
+     * @param password
+     * The user's password, or <tt>null</tt> for none.
+     *
+     * @param maximumPoolSize
+     * The maximum number of connections the pool will open.
+     *
+     * @param idleTimeout
+     * The time, in milliseconds, after which an idle connection will be
+     * closed.
+     */
+    public ConnectionPool(String url, String user, String password, int maximumPoolSize, long idleTimeout) {
+        if (url == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (maximumPoolSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.url = url;
+        this.user = user;
+        this.password = password;
+
+        this.maximumPoolSize = maximumPoolSize;
+        this.idleTimeout = idleTimeout;
+
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, ConnectionPool.class.getName());
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        long period = Math.max(idleTimeout / 2, VALIDATION_INTERVAL);
+
+        evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evict();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the maximum number of connections the pool will open.
+     *
+     * @return
+     * The maximum pool size.
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * Returns the number of connections currently open.
+     *
+     * @return
+     * The number of open connections, including those in use.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of idle connections.
+     *
+     * @return
+     * The number of connections available for reuse.
+     */
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Returns the time to wait for a connection when the pool is exhausted.
+     *
+     * @return
+     * The connection timeout, in milliseconds.
+     */
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * Sets the time to wait for a connection when the pool is exhausted.
+     *
+     * @param connectionTimeout
+     * The connection timeout, in milliseconds.
+     */
+    public void setConnectionTimeout(long connectionTimeout) {
+        if (connectionTimeout < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long deadline = System.currentTimeMillis() + connectionTimeout;
+
+        while (true) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed.");
+            }
+
+            // Reuse an idle connection
+            PooledConnection pooledConnection = idleConnections.pollFirst();
+
+            if (pooledConnection != null) {
+                if (validate(pooledConnection)) {
+                    return lease(pooledConnection);
+                }
+
+                discard(pooledConnection);
+
+                continue;
+            }
+
+            // Open a new connection
+            int n = size.get();
+
+            if (n < maximumPoolSize) {
+                if (size.compareAndSet(n, n + 1)) {
+                    Connection connection;
+                    try {
+                        connection = DriverManager.getConnection(url, user, password);
+                    } catch (SQLException | RuntimeException exception) {
+                        size.decrementAndGet();
+
+                        signal();
+
+                        throw exception;
+                    }
+
+                    return lease(new PooledConnection(connection));
+                }
+
+                continue;
+            }
+
+            // Wait for a connection to be returned
+            long timeout = deadline - System.currentTimeMillis();
+
+            if (timeout <= 0) {
+                throw new SQLTimeoutException("Timed out waiting for a connection.");
+            }
+
+            synchronized (lock) {
+                waiters.incrementAndGet();
+
+                try {
+                    if (idleConnections.isEmpty() && size.get() >= maximumPoolSize) {
+                        lock.wait(timeout);
+                    }
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+
+                    throw new SQLException(exception);
+                } finally {
+                    waiters.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private Connection lease(PooledConnection pooledConnection) {
+        Handle handle = new Handle(pooledConnection);
+
+        return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, handle);
+    }
+
+    private void release(PooledConnection pooledConnection) {
+        Connection connection = pooledConnection.connection;
+
+        boolean reusable;
+        try {
+            if (connection.isClosed()) {
+                reusable = false;
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+
+                reusable = true;
+            }
+        } catch (SQLException exception) {
+            reusable = false;
+        }
+
+        if (reusable && !closed) {
+            pooledConnection.lastUsed = System.currentTimeMillis();
+
+            idleConnections.offerFirst(pooledConnection);
+
+            signal();
+
+            // Close the connection if the pool was closed concurrently
+            if (closed && idleConnections.remove(pooledConnection)) {
+                discard(pooledConnection);
+            }
+        } else {
+            discard(pooledConnection);
+        }
+    }
+
+    private boolean validate(PooledConnection pooledConnection) {
+        if (System.currentTimeMillis() - pooledConnection.lastUsed < VALIDATION_INTERVAL) {
+            return true;
+        }
+
+        try {
+            return pooledConnection.connection.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException exception) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooledConnection) {
+        // Closing the physical connection also closes its cached statements
+        try {
+            pooledConnection.connection.close();
+        } catch (SQLException exception) {
+            // No-op
+        } finally {
+            size.decrementAndGet();
+
+            signal();
+        }
+    }
+
+    private void signal() {
+        if (waiters.get() > 0) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+
+        for (PooledConnection pooledConnection : idleConnections) {
+            if (now - pooledConnection.lastUsed > idleTimeout && idleConnections.remove(pooledConnection)) {
+                discard(pooledConnection);
+            }
+        }
+    }
+
+    /**
+     * Returns a pooled connection to its pool.
+     *
+     * @param connection
+     * A connection.
+     *
+     * @return
+     * <tt>true</tt> if the connection was leased from a pool and has been
+     * returned to it; <tt>false</tt>, otherwise.
+     */
+    static boolean release(Connection connection) {
+        if (!Proxy.isProxyClass(connection.getClass()) || !(Proxy.getInvocationHandler(connection) instanceof Handle)) {
+            return false;
+        }
+
+        ((Handle)Proxy.getInvocationHandler(connection)).close();
+
+        return true;
+    }
+
+    private static Object wrap(Object target, Class<?> type, Object parent, String parentMethodName, boolean cached) {
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {type}, new ChildHandle(target, parent, parentMethodName, cached));
+    }
+
+    /**
+     * Returns a prepared statement from the statement cache of a pooled
+     * connection. Cached statements remain open until they are evicted from
+     * the cache or their physical connection is closed.
+     *
+     * @param connection
+     * A connection.
+     *
+     * @param sql
+     * The SQL to prepare.
+     *
+     * @return
+     * The cached statement, wrapped so that it reports the pooled connection,
+     * or <tt>null</tt> if the connection was not leased from a pool.
+     *
+     * @throws SQLException
+     * If the connection is closed, or if an exception occurs while preparing
+     * the statement.
+     */
+    static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        if (!Proxy.isProxyClass(connection.getClass()) || !(Proxy.getInvocationHandler(connection) instanceof Handle)) {
+            return null;
+        }
+
+        Handle handle = (Handle)Proxy.getInvocationHandler(connection);
+
+        if (handle.isClosed()) {
+            throw new SQLException("Connection is closed.");
+        }
+
+        PooledConnection pooledConnection = handle.pooledConnection;
+
+        StatementCache statementCache = pooledConnection.statementCache;
+
+        // A connection is used by one thread at a time, so this lock is uncontended
+        synchronized (statementCache) {
+            PreparedStatement statement = statementCache.get(sql);
+
+            if (statement == null || statement.isClosed()) {
+                statement = pooledConnection.connection.prepareStatement(sql);
+
+                statementCache.put(sql, statement);
+            }
+
+            return (PreparedStatement)wrap(statement, PreparedStatement.class, connection, "getConnection", true);
+        }
+    }
+
+    /**
+     * Determines whether a statement was obtained from the statement cache of
+     * a pooled connection.
+     *
+     * @param statement
+     * A statement.
+     *
+     * @return
+     * <tt>true</tt> if the statement is cached and should not be closed by
+     * the caller; <tt>false</tt>, otherwise.
+     */
+    static boolean isCached(Statement statement) {
+        if (Proxy.isProxyClass(statement.getClass())) {
+            InvocationHandler invocationHandler = Proxy.getInvocationHandler(statement);
+
+            if (invocationHandler instanceof ChildHandle) {
+                return ((ChildHandle)invocationHandler).cached;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the physical statement underlying a wrapped statement.
+     *
+     * @param statement
+     * A statement.
+     *
+     * @return
+     * The physical statement, or the given statement if it was not created by
+     * a pooled connection.
+     */
+    static Statement getPhysicalStatement(Statement statement) {
+        if (Proxy.isProxyClass(statement.getClass())) {
+            InvocationHandler invocationHandler = Proxy.getInvocationHandler(statement);
+
+            if (invocationHandler instanceof ChildHandle) {
+                return (Statement)((ChildHandle)invocationHandler).target;
+            }
+        }
+
+        return statement;
+    }
+
+    /**
+     * Returns the physical connection underlying a pooled connection.
+     *
+     * @param connection
+     * A connection.
+     *
+     * @return
+     * The physical connection, or the given connection if it was not leased
+     * from a pool.
+     */
+    static Connection getPhysicalConnection(Connection connection) {
+        if (Proxy.isProxyClass(connection.getClass())) {
+            InvocationHandler invocationHandler = Proxy.getInvocationHandler(connection);
+
+            if (invocationHandler instanceof Handle) {
+                return ((Handle)invocationHandler).pooledConnection.connection;
+            }
+        }
+
+        return connection;
+    }
+
+    /**
+     * Closes the pool. Idle connections are closed immediately; connections
+     * in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        evictionExecutor.shutdownNow();
+
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            discard(pooledConnection);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter logWriter) {
+        this.logWriter = logWriter;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public void setLoginTimeout(int loginTimeout) {
+        this.loginTimeout = loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Not a wrapper for " + iface.getName() + ".");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class representing a page of query results produced by {@link Pagination}.
+ * A page is a map containing two entries: "items", the rows of the page, and
+ * "next", the continuation token for the following page, or <tt>null</tt> if
+ * this is the last page. Rows are read from the database as the items are
+ * iterated, and the continuation token is available once iteration is
+ * complete, so the items must be written before the token.
+ */
+public class Page extends AbstractMap<String, Object> implements AutoCloseable {
+    // Item list
+    private class ItemList extends AbstractList<Map<String, Object>> {
+        @Override
+        public Map<String, Object> get(int index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Map<String, Object>> iterator() {
+            if (iterator != null) {
+                throw new IllegalStateException();
+            }
+
+            iterator = resultSetAdapter.iterator();
+
+            return new Iterator<Map<String, Object>>() {
+                @Override
+                public boolean hasNext() {
+                    if (count < limit) {
+                        return iterator.hasNext();
+                    }
+
+                    if (count == limit && next == null && iterator.hasNext()) {
+                        Object[] values = new Object[sortKeys.length];
+
+                        for (int i = 0; i < sortKeys.length; i++) {
+                            values[i] = last.get(sortKeys[i]);
+                        }
+
+                        next = Pagination.encode(values);
+                    }
+
+                    return false;
+                }
+
+                @Override
+                public Map<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    last = iterator.next();
+
+                    count++;
+
+                    return last;
+                }
+            };
+        }
+    }
+
+    private ResultSetAdapter resultSetAdapter;
+    private String[] sortKeys;
+    private int limit;
+
+    private ItemList items = new ItemList();
+
+    private Iterator<Map<String, Object>> iterator = null;
+    private Map<String, Object> last = null;
+    private int count = 0;
+
+    private String next = null;
+
+    private boolean closed = false;
+
+    private Set<Entry<String, Object>> entrySet = new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public int size() {
+            return 2;
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<Entry<String, Object>>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < 2;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final String key = (i++ == 0) ? ITEMS_KEY : NEXT_KEY;
+
+                    return new Entry<String, Object>() {
+                        @Override
+                        public String getKey() {
+                            return key;
+                        }
+
+                        @Override
+                        public Object getValue() {
+                            return get(key);
+                        }
+
+                        @Override
+                        public Object setValue(Object value) {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    };
+
+    /**
+     * The key of the page's items.
+     */
+    public static final String ITEMS_KEY = "items";
+
+    /**
+     * The key of the page's continuation token.
+     */
+    public static final String NEXT_KEY = "next";
+
+    Page(ResultSetAdapter resultSetAdapter, String[] sortKeys, int limit) {
+        this.resultSetAdapter = resultSetAdapter;
+        this.sortKeys = sortKeys;
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the rows of the page. The rows may be iterated only once.
+     *
+     * @return
+     * The page's items.
+     */
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the continuation token for the following page. The token is
+     * available once the items have been iterated.
+     *
+     * @return
+     * The continuation token, or <tt>null</tt> if there are no more pages.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (ITEMS_KEY.equals(key)) {
+            return items;
+        } else if (NEXT_KEY.equals(key)) {
+            return next;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Closes the page. The underlying result set, statement, and connection
+     * are closed; a connection obtained from a {@link ConnectionPool} is
+     * returned to the pool.
+     *
+     * @throws SQLException
+     * If an exception occurs.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!closed) {
+            closed = true;
+
+            resultSetAdapter.close();
+        }
+    }
+}
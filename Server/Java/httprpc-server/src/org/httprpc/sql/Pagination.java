@@ -0,0 +1,597 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Class for executing paged queries using keyset pagination. Rather than
+ * skipping a number of rows via <tt>OFFSET</tt>, each page selects the rows
+ * that sort after the last row of the previous page. The keyset predicate is
+ * added to the query's own <tt>WHERE</tt> clause, so that, given an index on
+ * the sort key columns, the database can seek directly to the start of each
+ * page, and deep pages cost the same as the first page. Instances are
+ * immutable and may be shared between threads.
+ * <p>
+ * The form of the generated SQL depends on the {@link Dialect} of the
+ * database, which is determined from the connection's metadata.
+ */
+public class Pagination {
+    /**
+     * SQL dialects supported by pagination.
+     */
+    public enum Dialect {
+        /**
+         * Row value comparison, as in <tt>(a, b) &gt; (?, ?)</tt>, and a
+         * <tt>LIMIT</tt> clause; for example, PostgreSQL, MySQL 5.7 and later,
+         * MariaDB, SQLite 3.15 and later, H2, and HSQLDB.
+         */
+        LIMIT,
+
+        /**
+         * Nested comparison, as in <tt>a &gt;= ? and (a &gt; ? or b &gt; ?)</tt>,
+         * and a SQL:2008 <tt>FETCH FIRST</tt> clause; for example, Oracle 12c
+         * and later, and Db2. This is the default for unrecognized databases.
+         */
+        FETCH_FIRST,
+
+        /**
+         * Nested comparison and an <tt>OFFSET ... FETCH NEXT</tt> clause;
+         * Microsoft SQL Server 2012 and later.
+         */
+        OFFSET_FETCH
+    }
+
+    private Parameters parameters;
+    private String[] sortKeys;
+    private String[] labels;
+
+    private String[] firstSQL;
+    private String[] nextSQL;
+
+    private int position;
+
+    private int[] rowValueIndices;
+    private int[] nestedValueIndices;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int LONG = 2;
+    private static final int DOUBLE = 3;
+    private static final int BOOLEAN = 4;
+    private static final int BIG_DECIMAL = 5;
+    private static final int TIMESTAMP = 6;
+
+    private static final String[] LIMIT_DATABASES = {"PostgreSQL", "MySQL", "MariaDB", "SQLite", "H2", "HSQL Database Engine"};
+    private static final String SQL_SERVER_DATABASE = "Microsoft SQL Server";
+
+    private static final String[] TRAILING_CLAUSES = {"group", "having", "window"};
+    private static final String[] UNSUPPORTED_CLAUSES = {"order", "limit", "offset", "fetch", "union", "intersect", "except"};
+
+    /**
+     * Creates a new pagination.
+     *
+     * @param parameters
+     * The query to paginate. The query must not specify an order or a limit,
+     * and must not be a compound query.
+     *
+     * @param sortKeys
+     * The columns by which rows will be ordered, in ascending order. Each key
+     * must name a column of the query's tables, optionally qualified by a
+     * table name or alias, that can be used in the query's <tt>WHERE</tt>
+     * clause, and its unqualified name must be the label of a column in the
+     * results. The sort key columns must not contain null values, and
+     * together they must uniquely identify a row; typically, the last key is
+     * the table's primary key.
+     */
+    public Pagination(Parameters parameters, String... sortKeys) {
+        if (parameters == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (sortKeys == null || sortKeys.length == 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.parameters = parameters;
+        this.sortKeys = sortKeys.clone();
+
+        int n = sortKeys.length;
+
+        labels = new String[n];
+
+        for (int i = 0; i < n; i++) {
+            labels[i] = sortKeys[i].substring(sortKeys[i].lastIndexOf('.') + 1);
+        }
+
+        String sql = parameters.getSQL().trim();
+
+        // Locate the end of the WHERE clause
+        int where = -1;
+        int end = -1;
+
+        int count = 0;
+
+        boolean from = false;
+
+        int depth = 0;
+
+        int i = 0;
+
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+
+            if (c == '\'' || c == '"' || c == '`') {
+                int j = sql.indexOf(c, i + 1);
+
+                i = (j == -1) ? sql.length() : j + 1;
+            } else if (sql.startsWith("--", i)) {
+                int j = sql.indexOf('\n', i);
+
+                i = (j == -1) ? sql.length() : j + 1;
+            } else if (sql.startsWith("/*", i)) {
+                int j = sql.indexOf("*/", i + 2);
+
+                i = (j == -1) ? sql.length() : j + 2;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+
+                while (j < sql.length() && Character.isJavaIdentifierPart(sql.charAt(j))) {
+                    j++;
+                }
+
+                String word = sql.substring(i, j).toLowerCase();
+
+                if (depth == 0) {
+                    if (word.equals("from")) {
+                        from = true;
+                    } else if (from && contains(UNSUPPORTED_CLAUSES, word)) {
+                        throw new IllegalArgumentException("Unsupported clause: " + word);
+                    } else if (from && end == -1) {
+                        if (word.equals("where")) {
+                            where = j;
+                        } else if (contains(TRAILING_CLAUSES, word)) {
+                            end = i;
+                        }
+                    }
+                }
+
+                i = j;
+            } else {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '?' && end == -1) {
+                    count++;
+                }
+
+                i++;
+            }
+        }
+
+        if (end == -1) {
+            end = sql.length();
+        }
+
+        // Keyset placeholders follow the query's own WHERE clause placeholders
+        position = count + 1;
+
+        StringBuilder orderBuilder = new StringBuilder(" order by ");
+
+        for (int j = 0; j < n; j++) {
+            if (j > 0) {
+                orderBuilder.append(", ");
+            }
+
+            orderBuilder.append(sortKeys[j]);
+        }
+
+        String order = orderBuilder.toString();
+
+        // (k1, k2, ...) > (?, ?, ...)
+        StringBuilder rowValueBuilder = new StringBuilder();
+
+        rowValueIndices = new int[n];
+
+        if (n == 1) {
+            rowValueBuilder.append(sortKeys[0]);
+            rowValueBuilder.append(" > ?");
+        } else {
+            rowValueBuilder.append("(");
+
+            for (int j = 0; j < n; j++) {
+                if (j > 0) {
+                    rowValueBuilder.append(", ");
+                }
+
+                rowValueBuilder.append(sortKeys[j]);
+            }
+
+            rowValueBuilder.append(") > (");
+
+            for (int j = 0; j < n; j++) {
+                if (j > 0) {
+                    rowValueBuilder.append(", ");
+                }
+
+                rowValueBuilder.append("?");
+            }
+
+            rowValueBuilder.append(")");
+        }
+
+        for (int j = 0; j < n; j++) {
+            rowValueIndices[j] = j;
+        }
+
+        // k1 >= ? and (k1 > ? or k2 >= ? and (k2 > ? or ...)); the leading
+        // comparison on each key allows an index range scan
+        StringBuilder nestedBuilder = new StringBuilder();
+
+        nestedValueIndices = new int[n * 2 - 1];
+
+        for (int j = 0; j < n - 1; j++) {
+            nestedBuilder.append(sortKeys[j]);
+            nestedBuilder.append(" >= ? and (");
+            nestedBuilder.append(sortKeys[j]);
+            nestedBuilder.append(" > ? or ");
+
+            nestedValueIndices[j * 2] = j;
+            nestedValueIndices[j * 2 + 1] = j;
+        }
+
+        nestedBuilder.append(sortKeys[n - 1]);
+        nestedBuilder.append(" > ?");
+
+        nestedValueIndices[n * 2 - 2] = n - 1;
+
+        for (int j = 0; j < n - 1; j++) {
+            nestedBuilder.append(")");
+        }
+
+        Dialect[] dialects = Dialect.values();
+
+        firstSQL = new String[dialects.length];
+        nextSQL = new String[dialects.length];
+
+        for (int j = 0; j < dialects.length; j++) {
+            Dialect dialect = dialects[j];
+
+            String predicate = (dialect == Dialect.LIMIT) ? rowValueBuilder.toString() : nestedBuilder.toString();
+
+            String limit;
+            switch (dialect) {
+                case LIMIT: {
+                    limit = " limit ?";
+
+                    break;
+                }
+
+                case OFFSET_FETCH: {
+                    limit = " offset 0 rows fetch next ? rows only";
+
+                    break;
+                }
+
+                default: {
+                    limit = " fetch first ? rows only";
+
+                    break;
+                }
+            }
+
+            firstSQL[j] = sql + order + limit;
+
+            StringBuilder sqlBuilder = new StringBuilder();
+
+            if (where == -1) {
+                sqlBuilder.append(sql.substring(0, end).trim());
+                sqlBuilder.append(" where ");
+            } else {
+                sqlBuilder.append(sql.substring(0, where));
+                sqlBuilder.append(" (");
+                sqlBuilder.append(sql.substring(where, end).trim());
+                sqlBuilder.append(") and ");
+            }
+
+            sqlBuilder.append(predicate);
+
+            if (end < sql.length()) {
+                sqlBuilder.append(" ");
+                sqlBuilder.append(sql.substring(end));
+            }
+
+            sqlBuilder.append(order);
+            sqlBuilder.append(limit);
+
+            nextSQL[j] = sqlBuilder.toString();
+        }
+    }
+
+    private static boolean contains(String[] words, String word) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals(word)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the SQL used to select the first page.
+     *
+     * @param dialect
+     * The SQL dialect.
+     *
+     * @return
+     * The SQL for the first page.
+     */
+    public String getFirstSQL(Dialect dialect) {
+        if (dialect == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return firstSQL[dialect.ordinal()];
+    }
+
+    /**
+     * Returns the SQL used to select subsequent pages.
+     *
+     * @param dialect
+     * The SQL dialect.
+     *
+     * @return
+     * The SQL for subsequent pages.
+     */
+    public String getNextSQL(Dialect dialect) {
+        if (dialect == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return nextSQL[dialect.ordinal()];
+    }
+
+    /**
+     * Returns the dialect of the database behind a connection.
+     *
+     * @param connection
+     * The connection.
+     *
+     * @return
+     * The connection's SQL dialect.
+     *
+     * @throws SQLException
+     * If an exception occurs while reading the connection's metadata.
+     */
+    public static Dialect getDialect(Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new IllegalArgumentException();
+        }
+
+        String databaseProductName = connection.getMetaData().getDatabaseProductName();
+
+        if (databaseProductName == null) {
+            databaseProductName = "";
+        }
+
+        if (contains(LIMIT_DATABASES, databaseProductName)) {
+            return Dialect.LIMIT;
+        } else if (databaseProductName.startsWith(SQL_SERVER_DATABASE)) {
+            return Dialect.OFFSET_FETCH;
+        } else {
+            return Dialect.FETCH_FIRST;
+        }
+    }
+
+    /**
+     * Executes the query and returns a page of results. Closing the page
+     * closes the statement and the connection; a connection obtained from a
+     * {@link ConnectionPool} is returned to the pool.
+     *
+     * @param connection
+     * The connection on which the query will be executed.
+     *
+     * @param arguments
+     * The argument values that will be applied to the query.
+     *
+     * @param token
+     * The continuation token returned with the previous page, or <tt>null</tt>
+     * for the first page.
+     *
+     * @param limit
+     * The maximum number of rows to return.
+     *
+     * @return
+     * The page of results.
+     *
+     * @throws SQLException
+     * If an exception occurs while executing the query.
+     */
+    public Page query(Connection connection, Map<String, ?> arguments, String token, int limit) throws SQLException {
+        if (connection == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (arguments == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (limit < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        Object[] values = (token == null) ? null : decode(token, sortKeys.length);
+
+        Dialect dialect = getDialect(connection);
+
+        PreparedStatement statement = connection.prepareStatement((values == null) ? getFirstSQL(dialect) : getNextSQL(dialect));
+
+        try {
+            int index;
+            if (values == null) {
+                parameters.apply(statement, arguments);
+
+                index = parameters.getCount() + 1;
+            } else {
+                int[] valueIndices = (dialect == Dialect.LIMIT) ? rowValueIndices : nestedValueIndices;
+
+                parameters.apply(statement, arguments, position, valueIndices.length);
+
+                for (int i = 0; i < valueIndices.length; i++) {
+                    Parameters.setValue(statement, position + i, values[valueIndices[i]]);
+                }
+
+                index = parameters.getCount() + valueIndices.length + 1;
+            }
+
+            // Select one extra row to determine whether another page follows
+            statement.setInt(index, limit + 1);
+
+            return new Page(new ResultSetAdapter(statement.executeQuery()), labels, limit);
+        } catch (SQLException | RuntimeException exception) {
+            statement.close();
+
+            throw exception;
+        }
+    }
+
+    static String encode(Object[] values) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (DataOutputStream dataOutputStream = new DataOutputStream(outputStream)) {
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+
+                if (value == null) {
+                    dataOutputStream.writeByte(NULL);
+                } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                    dataOutputStream.writeByte(LONG);
+                    dataOutputStream.writeLong(((Number)value).longValue());
+                } else if (value instanceof Double || value instanceof Float) {
+                    dataOutputStream.writeByte(DOUBLE);
+                    dataOutputStream.writeDouble(((Number)value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    dataOutputStream.writeByte(BOOLEAN);
+                    dataOutputStream.writeBoolean((Boolean)value);
+                } else if (value instanceof BigDecimal) {
+                    dataOutputStream.writeByte(BIG_DECIMAL);
+                    dataOutputStream.writeUTF(value.toString());
+                } else if (value instanceof Date) {
+                    Date date = (Date)value;
+
+                    dataOutputStream.writeByte(TIMESTAMP);
+                    dataOutputStream.writeLong(date.getTime());
+                    dataOutputStream.writeInt((date instanceof Timestamp) ? ((Timestamp)date).getNanos() : -1);
+                } else {
+                    dataOutputStream.writeByte(STRING);
+                    dataOutputStream.writeUTF(value.toString());
+                }
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(outputStream.toByteArray());
+    }
+
+    static Object[] decode(String token, int n) {
+        Object[] values = new Object[n];
+
+        try (DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            for (int i = 0; i < n; i++) {
+                int type = dataInputStream.readByte();
+
+                switch (type) {
+                    case NULL: {
+                        values[i] = null;
+
+                        break;
+                    }
+
+                    case STRING: {
+                        values[i] = dataInputStream.readUTF();
+
+                        break;
+                    }
+
+                    case LONG: {
+                        values[i] = dataInputStream.readLong();
+
+                        break;
+                    }
+
+                    case DOUBLE: {
+                        values[i] = dataInputStream.readDouble();
+
+                        break;
+                    }
+
+                    case BOOLEAN: {
+                        values[i] = dataInputStream.readBoolean();
+
+                        break;
+                    }
+
+                    case BIG_DECIMAL: {
+                        values[i] = new BigDecimal(dataInputStream.readUTF());
+
+                        break;
+                    }
+
+                    case TIMESTAMP: {
+                        Timestamp timestamp = new Timestamp(dataInputStream.readLong());
+
+                        int nanos = dataInputStream.readInt();
+
+                        if (nanos >= 0) {
+                            timestamp.setNanos(nanos);
+                        }
+
+                        values[i] = timestamp;
+
+                        break;
+                    }
+
+                    default: {
+                        throw new IllegalArgumentException("Invalid token.");
+                    }
+                }
+            }
+
+            if (dataInputStream.read() != -1) {
+                throw new IllegalArgumentException("Invalid token.");
+            }
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Invalid token.", exception);
+        }
+
+        return values;
+    }
+}
@@ -17,23 +17,84 @@ package org.httprpc.sql;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
- * Class for simplifying execution of prepared statements.
+ * Class for simplifying execution of prepared statements. Instances are
+ * immutable and may be shared between threads.
  */
 public class Parameters {
     private String sql;
-    private LinkedList<String> keys;
+    private String[] keys;
+    private int[][] positions;
+    private int count = 0;
 
     private static final int EOF = -1;
 
-    private Parameters(String sql, LinkedList<String> keys) {
+    private static final int OBJECT = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int LONG = 3;
+    private static final int SHORT = 4;
+    private static final int BYTE = 5;
+    private static final int DOUBLE = 6;
+    private static final int FLOAT = 7;
+    private static final int BOOLEAN = 8;
+    private static final int BIG_DECIMAL = 9;
+    private static final int DATE = 10;
+    private static final int SQL_DATE = 11;
+    private static final int TIME = 12;
+    private static final int TIMESTAMP = 13;
+    private static final int BYTES = 14;
+
+    private static final HashMap<Class<?>, Integer> types = new HashMap<>();
+
+    static {
+        types.put(String.class, STRING);
+        types.put(Integer.class, INTEGER);
+        types.put(Long.class, LONG);
+        types.put(Short.class, SHORT);
+        types.put(Byte.class, BYTE);
+        types.put(Double.class, DOUBLE);
+        types.put(Float.class, FLOAT);
+        types.put(Boolean.class, BOOLEAN);
+        types.put(BigDecimal.class, BIG_DECIMAL);
+        types.put(Date.class, DATE);
+        types.put(java.sql.Date.class, SQL_DATE);
+        types.put(Time.class, TIME);
+        types.put(Timestamp.class, TIMESTAMP);
+        types.put(byte[].class, BYTES);
+    }
+
+    private static final int PARSE_CACHE_CAPACITY = 1024;
+
+    private static final int INITIAL_UPDATE_COUNT_CAPACITY = 16;
+
+    private static ConcurrentHashMap<String, Parameters> parseCache = new ConcurrentHashMap<>();
+
+    private Parameters(String sql, String[] keys, int[][] positions) {
         this.sql = sql;
         this.keys = keys;
+        this.positions = positions;
+
+        for (int i = 0; i < positions.length; i++) {
+            count += positions[i].length;
+        }
     }
 
     /**
@@ -47,7 +108,9 @@ public class Parameters {
     }
 
     /**
-     * Applies a set of argument values to a prepared statement.
+     * Applies a set of argument values to a prepared statement. Each distinct
+     * parameter is looked up once, and its value is bound to every placeholder
+     * that refers to it using the setter that corresponds to the value's type.
      *
      * @param statement
      * The prepared statement.
@@ -59,15 +122,362 @@ public class Parameters {
      * If an exception occurs while applying the argument values.
      */
     public void apply(PreparedStatement statement, Map<String, ?> arguments) throws SQLException {
-        int i = 1;
+        apply(statement, arguments, count + 1, 0);
+    }
+
+    // Applies argument values to a statement into which other placeholders have
+    // been inserted; placeholders at or after the given position are shifted
+    void apply(PreparedStatement statement, Map<String, ?> arguments, int position, int offset) throws SQLException {
+        for (int i = 0; i < keys.length; i++) {
+            Object value = arguments.get(keys[i]);
+
+            int type = getType(value);
+
+            for (int j = 0; j < positions[i].length; j++) {
+                int index = positions[i][j];
+
+                setValue(statement, (index < position) ? index : index + offset, type, value);
+            }
+        }
+    }
+
+    String[] getKeys() {
+        return keys;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    static void setValue(PreparedStatement statement, int index, Object value) throws SQLException {
+        setValue(statement, index, getType(value), value);
+    }
+
+    private static int getType(Object value) {
+        if (value == null) {
+            return OBJECT;
+        }
+
+        Integer type = types.get(value.getClass());
 
-        for (String key : keys) {
-            statement.setObject(i++, arguments.get(key));
+        if (type == null) {
+            return (value instanceof Date) ? DATE : OBJECT;
+        }
+
+        return type;
+    }
+
+    private static void setValue(PreparedStatement statement, int index, int type, Object value) throws SQLException {
+        switch (type) {
+            case STRING: {
+                statement.setString(index, (String)value);
+
+                break;
+            }
+
+            case INTEGER: {
+                statement.setInt(index, (Integer)value);
+
+                break;
+            }
+
+            case LONG: {
+                statement.setLong(index, (Long)value);
+
+                break;
+            }
+
+            case SHORT: {
+                statement.setShort(index, (Short)value);
+
+                break;
+            }
+
+            case BYTE: {
+                statement.setByte(index, (Byte)value);
+
+                break;
+            }
+
+            case DOUBLE: {
+                statement.setDouble(index, (Double)value);
+
+                break;
+            }
+
+            case FLOAT: {
+                statement.setFloat(index, (Float)value);
+
+                break;
+            }
+
+            case BOOLEAN: {
+                statement.setBoolean(index, (Boolean)value);
+
+                break;
+            }
+
+            case BIG_DECIMAL: {
+                statement.setBigDecimal(index, (BigDecimal)value);
+
+                break;
+            }
+
+            case DATE: {
+                statement.setTimestamp(index, new Timestamp(((Date)value).getTime()));
+
+                break;
+            }
+
+            case SQL_DATE: {
+                statement.setDate(index, (java.sql.Date)value);
+
+                break;
+            }
+
+            case TIME: {
+                statement.setTime(index, (Time)value);
+
+                break;
+            }
+
+            case TIMESTAMP: {
+                statement.setTimestamp(index, (Timestamp)value);
+
+                break;
+            }
+
+            case BYTES: {
+                statement.setBytes(index, (byte[])value);
+
+                break;
+            }
+
+            default: {
+                statement.setObject(index, value);
+
+                break;
+            }
         }
     }
 
     /**
-     * Parses a parameterized SQL statement.
+     * Executes a prepared statement once for each of a sequence of argument
+     * maps, submitting the statements to the database in batches. The
+     * statement's batch is cleared when the method returns, even if an
+     * exception occurs.
+     *
+     * @param statement
+     * The prepared statement.
+     *
+     * @param arguments
+     * The argument values that will be applied to the prepared statement, one
+     * map per execution.
+     *
+     * @param batchSize
+     * The maximum number of executions to submit in a single batch.
+     *
+     * @return
+     * The update counts for each execution, in order.
+     *
+     * @throws SQLException
+     * If an exception occurs while executing the statement.
+     */
+    public int[] executeBatch(PreparedStatement statement, Iterable<? extends Map<String, ?>> arguments,
+        int batchSize) throws SQLException {
+        return executeBatch(statement, arguments, batchSize, null);
+    }
+
+    /**
+     * Executes a prepared statement once for each of a sequence of argument
+     * maps, submitting the statements to the database in batches. The
+     * statement's batch is cleared when the method returns, even if an
+     * exception occurs.
+     *
+     * @param statement
+     * The prepared statement.
+     *
+     * @param arguments
+     * The argument values that will be applied to the prepared statement, one
+     * map per execution.
+     *
+     * @param batchSize
+     * The maximum number of executions to submit in a single batch.
+     *
+     * @param generatedKeys
+     * A consumer that will receive the first generated key column of each
+     * generated key row, as each batch completes, or <tt>null</tt> for no
+     * generated keys. The statement must have been prepared with
+     * {@link Statement#RETURN_GENERATED_KEYS}.
+     *
+     * @return
+     * The update counts for each execution, in order.
+     *
+     * @throws SQLException
+     * If an exception occurs while executing the statement.
+     */
+    public int[] executeBatch(PreparedStatement statement, Iterable<? extends Map<String, ?>> arguments,
+        int batchSize, Consumer<Object> generatedKeys) throws SQLException {
+        if (statement == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (arguments == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        // The batch size may be much larger than the number of arguments
+        int[] updateCounts = new int[Math.min(batchSize, INITIAL_UPDATE_COUNT_CAPACITY)];
+
+        int count = 0;
+
+        int n = 0;
+
+        Iterator<? extends Map<String, ?>> iterator = arguments.iterator();
+
+        try {
+            while (iterator.hasNext()) {
+                apply(statement, iterator.next());
+
+                statement.addBatch();
+
+                n++;
+
+                if (n == batchSize || !iterator.hasNext()) {
+                    int[] batchUpdateCounts = statement.executeBatch();
+
+                    if (count + batchUpdateCounts.length > updateCounts.length) {
+                        updateCounts = Arrays.copyOf(updateCounts, Math.max(updateCounts.length * 2, count + batchUpdateCounts.length));
+                    }
+
+                    System.arraycopy(batchUpdateCounts, 0, updateCounts, count, batchUpdateCounts.length);
+
+                    count += batchUpdateCounts.length;
+
+                    if (generatedKeys != null) {
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            while (resultSet.next()) {
+                                generatedKeys.accept(resultSet.getObject(1));
+                            }
+                        }
+                    }
+
+                    n = 0;
+                }
+            }
+        } finally {
+            // Discard any statements left in an incomplete batch
+            statement.clearBatch();
+        }
+
+        return Arrays.copyOf(updateCounts, count);
+    }
+
+    /**
+     * Returns a prepared statement for the parsed SQL. If the connection was
+     * obtained from a {@link ConnectionPool}, statements are cached with the
+     * pooled connection, so repeated calls return the same underlying
+     * statement for as long as the physical connection remains open, even
+     * after the connection has been returned to the pool and leased again.
+     * Executing a cached statement closes any result set previously obtained
+     * from it. {@link ResultSetAdapter} does not close cached statements.
+     * For any other connection, a new statement is prepared on each call.
+     *
+     * @param connection
+     * The connection on which the statement will be executed.
+     *
+     * @return
+     * The prepared statement.
+     *
+     * @throws SQLException
+     * If an exception occurs while preparing the statement.
+     */
+    public PreparedStatement prepare(Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new IllegalArgumentException();
+        }
+
+        PreparedStatement statement = ConnectionPool.prepare(connection, sql);
+
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+        }
+
+        return statement;
+    }
+
+    /**
+     * Executes the parsed SQL as a streaming query. The statement is prepared
+     * as forward-only and read-only and is not cached, and rows are fetched
+     * from the database incrementally rather than being buffered in memory.
+     * For MySQL, the driver's row-streaming mode is enabled; for PostgreSQL,
+     * auto-commit is disabled so that the driver can use a cursor. Closing the
+     * returned adapter closes the statement and the connection.
+     *
+     * @param connection
+     * The connection on which the query will be executed.
+     *
+     * @param arguments
+     * The argument values that will be applied to the statement.
+     *
+     * @param fetchSize
+     * The number of rows to fetch from the database at a time. Ignored for
+     * MySQL, which streams rows one at a time.
+     *
+     * @return
+     * A result set adapter for the query results.
+     *
+     * @throws SQLException
+     * If an exception occurs while executing the query.
+     */
+    public ResultSetAdapter stream(Connection connection, Map<String, ?> arguments, int fetchSize) throws SQLException {
+        if (connection == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (arguments == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        String databaseProductName = connection.getMetaData().getDatabaseProductName();
+
+        if (databaseProductName == null) {
+            databaseProductName = "";
+        }
+
+        if (databaseProductName.equals("MySQL")) {
+            fetchSize = Integer.MIN_VALUE;
+        } else if (databaseProductName.equals("PostgreSQL") && connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+        }
+
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+        try {
+            statement.setFetchSize(fetchSize);
+
+            apply(statement, arguments);
+
+            return new ResultSetAdapter(statement.executeQuery());
+        } catch (SQLException | RuntimeException exception) {
+            statement.close();
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Parses a parameterized SQL statement. Parse results are cached by SQL
+     * text, so repeated calls with the same statement return the same
+     * instance.
      *
      * @param sql
      * A string containing the SQL to parse.
@@ -80,11 +490,22 @@ public class Parameters {
             throw new IllegalArgumentException();
         }
 
-        Parameters parameters;
-        try (Reader sqlReader = new StringReader(sql)) {
-            parameters = parse(sqlReader);
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
+        Parameters parameters = parseCache.get(sql);
+
+        if (parameters == null) {
+            try (Reader sqlReader = new StringReader(sql)) {
+                parameters = parse(sqlReader);
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+
+            if (parseCache.size() < PARSE_CACHE_CAPACITY) {
+                Parameters cached = parseCache.putIfAbsent(sql, parameters);
+
+                if (cached != null) {
+                    parameters = cached;
+                }
+            }
         }
 
         return parameters;
@@ -107,7 +528,9 @@ public class Parameters {
             throw new IllegalArgumentException();
         }
 
-        LinkedList<String> keys = new LinkedList<>();
+        LinkedHashMap<String, int[]> keys = new LinkedHashMap<>();
+
+        int n = 0;
 
         StringBuilder sqlBuilder = new StringBuilder();
 
@@ -125,7 +548,19 @@ public class Parameters {
                     c = sqlReader.read();
                 }
 
-                keys.add(keyBuilder.toString());
+                String key = keyBuilder.toString();
+
+                int[] positions = keys.get(key);
+
+                if (positions == null) {
+                    positions = new int[0];
+                }
+
+                positions = Arrays.copyOf(positions, positions.length + 1);
+
+                positions[positions.length - 1] = ++n;
+
+                keys.put(key, positions);
 
                 sqlBuilder.append("?");
             } else {
@@ -135,6 +570,7 @@ public class Parameters {
             }
         }
 
-        return new Parameters(sqlBuilder.toString(), keys);
+        return new Parameters(sqlBuilder.toString(), keys.keySet().toArray(new String[keys.size()]),
+            keys.values().toArray(new int[keys.size()][]));
     }
 }
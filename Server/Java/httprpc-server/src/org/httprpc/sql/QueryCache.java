@@ -0,0 +1,408 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+/**
+ * Class that caches the results of read-mostly queries. Results are keyed by
+ * the parsed SQL and the bound argument values, and are held as compact row
+ * arrays. Entries expire after a fixed time to live; the least recently used
+ * entries are evicted when the total number of cached rows exceeds the
+ * cache's capacity. Each entry may be tagged with the tables it depends on, so
+ * that it can be invalidated when those tables are modified. Instances are
+ * thread-safe.
+ */
+public class QueryCache {
+    // Cache key
+    private static class Key {
+        private String sql;
+        private Object[] values;
+
+        private int hashCode;
+
+        public Key(String sql, Object[] values) {
+            this.sql = sql;
+            this.values = values;
+
+            hashCode = sql.hashCode() * 31 + Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key)object;
+
+            return sql.equals(key.sql) && Arrays.deepEquals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    // Cache entry
+    private static class Entry {
+        public final RowList rows;
+        public final String[] tables;
+        public final long expiration;
+
+        public Entry(RowList rows, String[] tables, long expiration) {
+            this.rows = rows;
+            this.tables = tables;
+            this.expiration = expiration;
+        }
+    }
+
+    // Row list
+    private static class RowList extends AbstractList<Map<String, Object>> implements RandomAccess {
+        private String[] keys;
+        private HashMap<String, Integer> ordinals;
+        private Object[][] rows;
+
+        public RowList(String[] keys, Object[][] rows) {
+            this.keys = keys;
+            this.rows = rows;
+
+            ordinals = new HashMap<>();
+
+            for (int i = 0; i < keys.length; i++) {
+                ordinals.put(keys[i], i);
+            }
+        }
+
+        @Override
+        public Map<String, Object> get(int index) {
+            return new RowMap(this, rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // Row map
+    private static class RowMap extends AbstractMap<String, Object> {
+        private RowList rowList;
+        private Object[] values;
+
+        private Set<Map.Entry<String, Object>> entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < values.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        Map.Entry<String, Object> entry = new SimpleImmutableEntry<>(rowList.keys[i], values[i]);
+
+                        i++;
+
+                        return entry;
+                    }
+                };
+            }
+        };
+
+        public RowMap(RowList rowList, Object[] values) {
+            this.rowList = rowList;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer ordinal = rowList.ordinals.get(key);
+
+            return (ordinal == null) ? null : values[ordinal];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return rowList.ordinals.containsKey(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    private DataSource dataSource;
+    private int capacity;
+    private long timeToLive;
+
+    private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int size = 0;
+    private long generation = 0;
+
+    /**
+     * Creates a new query cache.
+     *
+     * @param dataSource
+     * The data source from which connections will be obtained.
+     *
+     * @param capacity
+     * The maximum total number of rows the cache will hold.
+     *
+     * @param timeToLive
+     * The time in milliseconds after which a cached result expires.
+     */
+    public QueryCache(DataSource dataSource, int capacity, long timeToLive) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        if (timeToLive < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dataSource = dataSource;
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the results of a query, executing the query only if the results
+     * are not already cached. The returned list is immutable and may be
+     * shared between threads.
+     *
+     * @param parameters
+     * The query to execute.
+     *
+     * @param arguments
+     * The argument values that will be applied to the query.
+     *
+     * @param tables
+     * The tables on which the query's results depend.
+     *
+     * @return
+     * The query results.
+     *
+     * @throws SQLException
+     * If an exception occurs while executing the query.
+     */
+    public List<Map<String, Object>> query(Parameters parameters, Map<String, ?> arguments, String... tables) throws SQLException {
+        if (parameters == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (arguments == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (tables == null) {
+            throw new IllegalArgumentException();
+        }
+
+        String[] keys = parameters.getKeys();
+
+        Object[] values = new Object[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = arguments.get(keys[i]);
+        }
+
+        Key key = new Key(parameters.getSQL(), values);
+
+        long generation;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+
+            if (entry != null) {
+                if (entry.expiration > System.currentTimeMillis()) {
+                    return entry.rows;
+                }
+
+                remove(key);
+            }
+
+            generation = this.generation;
+        }
+
+        RowList rows = execute(parameters, arguments);
+
+        synchronized (this) {
+            // Discard results that may predate an invalidation
+            if (generation == this.generation && rows.size() <= capacity) {
+                remove(key);
+
+                entries.put(key, new Entry(rows, tables.clone(), System.currentTimeMillis() + timeToLive));
+
+                size += rows.size();
+
+                Iterator<Entry> iterator = entries.values().iterator();
+
+                while (size > capacity) {
+                    size -= iterator.next().rows.size();
+
+                    iterator.remove();
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    private RowList execute(Parameters parameters, Map<String, ?> arguments) throws SQLException {
+        String[] keys = null;
+
+        ArrayList<Object[]> rows = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement statement = parameters.prepare(connection);
+
+            parameters.apply(statement, arguments);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                for (Map<String, Object> row : new ResultSetAdapter(resultSet)) {
+                    if (keys == null) {
+                        keys = row.keySet().toArray(new String[row.size()]);
+                    }
+
+                    Object[] values = new Object[keys.length];
+
+                    int i = 0;
+
+                    for (Object value : row.values()) {
+                        values[i++] = (value instanceof Map<?, ?>) ? freeze((Map<?, ?>)value) : value;
+                    }
+
+                    rows.add(values);
+                }
+            }
+        }
+
+        if (keys == null) {
+            keys = new String[0];
+        }
+
+        return new RowList(keys, rows.toArray(new Object[rows.size()][]));
+    }
+
+    private static Map<?, ?> freeze(Map<?, ?> map) {
+        LinkedHashMap<Object, Object> frozen = new LinkedHashMap<>(map.size());
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue();
+
+            frozen.put(entry.getKey(), (value instanceof Map<?, ?>) ? freeze((Map<?, ?>)value) : value);
+        }
+
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+
+        if (entry != null) {
+            size -= entry.rows.size();
+        }
+    }
+
+    /**
+     * Removes all cached results that depend on a given table.
+     *
+     * @param table
+     * The table name.
+     */
+    public synchronized void invalidate(String table) {
+        if (table == null) {
+            throw new IllegalArgumentException();
+        }
+
+        generation++;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            for (int i = 0; i < entry.tables.length; i++) {
+                if (entry.tables[i].equals(table)) {
+                    size -= entry.rows.size();
+
+                    iterator.remove();
+
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+
+        entries.clear();
+
+        size = 0;
+    }
+
+    /**
+     * Returns the total number of rows currently cached.
+     *
+     * @return
+     * The number of cached rows.
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+}
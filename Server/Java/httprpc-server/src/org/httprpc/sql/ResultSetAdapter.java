@@ -14,29 +14,94 @@
 
 package org.httprpc.sql;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.httprpc.util.Pipeline;
+
 /**
  * Class that presents the contents of a JDBC result set as an iterable list of
  * maps. If a column's label contains a period, the value will be returned as a
  * nested structure.
  *
  * Closing the adapter closes the underlying result set, statement, and
- * connection.
+ * connection. Statements obtained from {@link Parameters#prepare(Connection)}
+ * are left open for reuse, and connections obtained from a
+ * {@link ConnectionPool} are returned to the pool.
  */
 public class ResultSetAdapter extends AbstractList<Map<String, Object>> implements AutoCloseable {
+    /**
+     * Interface for visiting the structure of a row.
+     */
+    public interface RowVisitor {
+        /**
+         * Called for each column value in a row.
+         *
+         * @param key
+         * The key of the value.
+         *
+         * @param index
+         * The zero-based index of the column.
+         *
+         * @throws IOException
+         * If an exception occurs.
+         */
+        public void visitColumn(String key, int index) throws IOException;
+
+        /**
+         * Called before the members of a nested structure are visited.
+         *
+         * @param key
+         * The key of the nested structure.
+         *
+         * @throws IOException
+         * If an exception occurs.
+         */
+        public void startBranch(String key) throws IOException;
+
+        /**
+         * Called after the members of a nested structure have been visited.
+         *
+         * @throws IOException
+         * If an exception occurs.
+         */
+        public void endBranch() throws IOException;
+    }
+
     private ResultSet resultSet;
-    private ArrayList<String[]> columns;
+
+    // Row plan
+    private int[] accessors;
+    private String[] keys;
+    private int[] targets;
+    private int[][] branches;
+
+    private String[] branchKeys;
+    private int[] branchParents;
+    private int[] branchCapacities;
+    private int[][] branchMembers;
+
+    private static final int OBJECT_ACCESSOR = 0;
+    private static final int STRING_ACCESSOR = 1;
+    private static final int INT_ACCESSOR = 2;
+    private static final int LONG_ACCESSOR = 3;
+    private static final int FLOAT_ACCESSOR = 4;
+    private static final int DOUBLE_ACCESSOR = 5;
+    private static final int BOOLEAN_ACCESSOR = 6;
+
+    private static final int[] EMPTY_BRANCHES = new int[0];
 
     /**
      * Creates a new result set adapter.
@@ -56,16 +121,292 @@ public class ResultSetAdapter extends AbstractList<Map<String, Object>> implemen
 
             int n = resultSetMetaData.getColumnCount();
 
-            columns = new ArrayList<>(n);
+            accessors = new int[n];
+            keys = new String[n];
+            targets = new int[n];
+            branches = new int[n][];
+
+            // Branch 0 is the row itself
+            ArrayList<String> branchKeyList = new ArrayList<>();
+            ArrayList<Integer> branchParentList = new ArrayList<>();
+            ArrayList<LinkedHashMap<String, Integer>> branchChildList = new ArrayList<>();
+            ArrayList<LinkedHashMap<String, Integer>> branchMemberList = new ArrayList<>();
+
+            branchKeyList.add(null);
+            branchParentList.add(-1);
+            branchChildList.add(new LinkedHashMap<String, Integer>());
+            branchMemberList.add(new LinkedHashMap<String, Integer>());
 
             for (int i = 0; i < n; i++) {
-                columns.add(resultSetMetaData.getColumnLabel(i + 1).split("\\."));
+                accessors[i] = getAccessor(resultSetMetaData, i + 1);
+
+                String[] path = resultSetMetaData.getColumnLabel(i + 1).split("\\.");
+
+                ArrayList<Integer> created = new ArrayList<>();
+
+                int branch = 0;
+
+                for (int j = 0; j < path.length - 1; j++) {
+                    String key = path[j];
+
+                    Integer child = branchChildList.get(branch).get(key);
+
+                    if (child == null) {
+                        child = branchKeyList.size();
+
+                        branchKeyList.add(key);
+                        branchParentList.add(branch);
+                        branchChildList.add(new LinkedHashMap<String, Integer>());
+                        branchMemberList.add(new LinkedHashMap<String, Integer>());
+
+                        branchChildList.get(branch).put(key, child);
+
+                        // Members are columns (i) or branches (-child - 1), in map order
+                        branchMemberList.get(branch).put(key, -child - 1);
+
+                        created.add(child);
+                    }
+
+                    branch = child;
+                }
+
+                keys[i] = path[path.length - 1];
+                targets[i] = branch;
+
+                branchMemberList.get(branch).put(keys[i], i);
+
+                if (created.isEmpty()) {
+                    branches[i] = EMPTY_BRANCHES;
+                } else {
+                    branches[i] = new int[created.size()];
+
+                    for (int j = 0; j < branches[i].length; j++) {
+                        branches[i][j] = created.get(j);
+                    }
+                }
+            }
+
+            int m = branchKeyList.size();
+
+            branchKeys = branchKeyList.toArray(new String[m]);
+            branchParents = new int[m];
+            branchCapacities = new int[m];
+            branchMembers = new int[m][];
+
+            for (int i = 0; i < m; i++) {
+                Collection<Integer> members = branchMemberList.get(i).values();
+
+                branchParents[i] = branchParentList.get(i);
+                branchCapacities[i] = members.size() * 4 / 3 + 1;
+                branchMembers[i] = new int[members.size()];
+
+                int j = 0;
+
+                for (Integer member : members) {
+                    branchMembers[i][j++] = member;
+                }
             }
         } catch (SQLException exception) {
             throw new RuntimeException(exception);
         }
     }
 
+    private static int getAccessor(ResultSetMetaData resultSetMetaData, int column) throws SQLException {
+        int accessor;
+        switch (resultSetMetaData.getColumnType(column)) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR: {
+                accessor = STRING_ACCESSOR;
+
+                break;
+            }
+
+            case Types.TINYINT:
+            case Types.SMALLINT: {
+                // Unsigned values still fit in an int
+                accessor = INT_ACCESSOR;
+
+                break;
+            }
+
+            case Types.INTEGER: {
+                accessor = resultSetMetaData.isSigned(column) ? INT_ACCESSOR : LONG_ACCESSOR;
+
+                break;
+            }
+
+            case Types.BIGINT: {
+                // Unsigned values may not fit in a long, so let the driver choose the type
+                accessor = resultSetMetaData.isSigned(column) ? LONG_ACCESSOR : OBJECT_ACCESSOR;
+
+                break;
+            }
+
+            case Types.REAL: {
+                accessor = FLOAT_ACCESSOR;
+
+                break;
+            }
+
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                accessor = DOUBLE_ACCESSOR;
+
+                break;
+            }
+
+            case Types.BOOLEAN: {
+                accessor = BOOLEAN_ACCESSOR;
+
+                break;
+            }
+
+            default: {
+                accessor = OBJECT_ACCESSOR;
+
+                break;
+            }
+        }
+
+        return accessor;
+    }
+
+    /**
+     * Returns a column value from the result set's current row. The value is
+     * read the same way as the values of the maps produced by the adapter's
+     * iterator.
+     *
+     * @param index
+     * The zero-based index of the column.
+     *
+     * @return
+     * The column value.
+     *
+     * @throws SQLException
+     * If an exception occurs.
+     */
+    public Object getValue(int index) throws SQLException {
+        int column = index + 1;
+
+        int accessor = accessors[index];
+
+        Object value;
+        switch (accessor) {
+            case STRING_ACCESSOR: {
+                value = resultSet.getString(column);
+
+                break;
+            }
+
+            case INT_ACCESSOR: {
+                value = resultSet.getInt(column);
+
+                break;
+            }
+
+            case LONG_ACCESSOR: {
+                value = resultSet.getLong(column);
+
+                break;
+            }
+
+            case FLOAT_ACCESSOR: {
+                value = resultSet.getFloat(column);
+
+                break;
+            }
+
+            case DOUBLE_ACCESSOR: {
+                value = resultSet.getDouble(column);
+
+                break;
+            }
+
+            case BOOLEAN_ACCESSOR: {
+                value = resultSet.getBoolean(column);
+
+                break;
+            }
+
+            default: {
+                value = resultSet.getObject(column);
+
+                break;
+            }
+        }
+
+        // Primitive accessors report null values via wasNull()
+        if (accessor != STRING_ACCESSOR && accessor != OBJECT_ACCESSOR && resultSet.wasNull()) {
+            value = null;
+        }
+
+        return value;
+    }
+
+    /**
+     * Visits the structure of the rows produced by the adapter. Keys and
+     * nested structures are visited in the order they appear in each row's
+     * map; column labels containing periods produce nested structures.
+     *
+     * @param visitor
+     * The row visitor.
+     *
+     * @throws IOException
+     * If an exception occurs.
+     */
+    public void accept(RowVisitor visitor) throws IOException {
+        if (visitor == null) {
+            throw new IllegalArgumentException();
+        }
+
+        accept(0, visitor);
+    }
+
+    private void accept(int branch, RowVisitor visitor) throws IOException {
+        int[] members = branchMembers[branch];
+
+        for (int i = 0; i < members.length; i++) {
+            int member = members[i];
+
+            if (member >= 0) {
+                visitor.visitColumn(keys[member], member);
+            } else {
+                int child = -member - 1;
+
+                visitor.startBranch(branchKeys[child]);
+
+                accept(child, visitor);
+
+                visitor.endBranch();
+            }
+        }
+    }
+
+    /**
+     * Returns the underlying result set.
+     *
+     * @return
+     * The source result set.
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * Returns a pipeline for transforming the contents of the adapter. Closing
+     * the pipeline closes the adapter.
+     *
+     * @return
+     * A pipeline whose source is this adapter.
+     */
+    public Pipeline<Map<String, Object>> pipeline() {
+        return Pipeline.of(this);
+    }
+
     @Override
     public void close() throws SQLException {
         Statement statement = resultSet.getStatement();
@@ -77,9 +418,13 @@ public class ResultSetAdapter extends AbstractList<Map<String, Object>> implemen
                 Connection connection = statement.getConnection();
 
                 try {
-                    statement.close();
+                    if (!ConnectionPool.isCached(statement)) {
+                        statement.close();
+                    }
                 } finally {
-                    connection.close();
+                    if (!ConnectionPool.release(connection)) {
+                        connection.close();
+                    }
                 }
             }
         }
@@ -114,35 +459,30 @@ public class ResultSetAdapter extends AbstractList<Map<String, Object>> implemen
             }
 
             @Override
-            @SuppressWarnings("unchecked")
             public Map<String, Object> next() {
                 if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
 
-                LinkedHashMap<String, Object> row = new LinkedHashMap<>();
-
-                try {
-                    for (int i = 0, n = columns.size(); i < n; i++) {
-                        String[] path = columns.get(i);
+                Map<String, Object>[] maps = newMapArray(branchKeys.length);
 
-                        LinkedHashMap<String, Object> map = row;
+                LinkedHashMap<String, Object> row = new LinkedHashMap<>(branchCapacities[0]);
 
-                        for (int j = 0; j < path.length - 1; j++) {
-                            String key = path[j];
+                maps[0] = row;
 
-                            Object child = map.get(key);
+                try {
+                    for (int i = 0; i < keys.length; i++) {
+                        int[] created = branches[i];
 
-                            if (!(child instanceof LinkedHashMap<?, ?>)) {
-                                child = new LinkedHashMap<>();
+                        for (int j = 0; j < created.length; j++) {
+                            int branch = created[j];
 
-                                map.put(key, child);
-                            }
+                            maps[branch] = new LinkedHashMap<>(branchCapacities[branch]);
 
-                            map = (LinkedHashMap<String, Object>)child;
+                            maps[branchParents[branch]].put(branchKeys[branch], maps[branch]);
                         }
 
-                        map.put(path[path.length - 1], resultSet.getObject(i + 1));
+                        maps[targets[i]].put(keys[i], getValue(i));
                     }
                 } catch (SQLException exception) {
                     throw new RuntimeException(exception);
@@ -155,6 +495,11 @@ public class ResultSetAdapter extends AbstractList<Map<String, Object>> implemen
         };
     }
 
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newMapArray(int length) {
+        return (Map<String, Object>[])new Map<?, ?>[length];
+    }
+
     @Override
     public String toString() {
         return getClass().getName();
@@ -14,28 +14,12 @@
 
 package org.httprpc.template;
 
-import java.util.Locale;
-
 /**
  * CSV escape modifier.
  */
-public class CSVEscapeModifier implements Modifier {
+public class CSVEscapeModifier extends EscapeModifier {
     @Override
-    public Object apply(Object value, String argument, Locale locale) {
-        StringBuilder resultBuilder = new StringBuilder();
-
-        String string = value.toString();
-
-        for (int i = 0, n = string.length(); i < n; i++) {
-            char c = string.charAt(i);
-
-            if (c == '"') {
-                resultBuilder.append(c);
-            }
-
-            resultBuilder.append(c);
-        }
-
-        return resultBuilder.toString();
+    protected String getEscape(char c) {
+        return (c == '"') ? "\"\"" : null;
     }
 }
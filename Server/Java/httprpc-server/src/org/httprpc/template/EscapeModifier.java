@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.template;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Abstract base class for modifiers that escape individual characters.
+ */
+public abstract class EscapeModifier implements StreamingModifier {
+    @Override
+    public Object apply(Object value, String argument, Locale locale) {
+        StringWriter writer = new StringWriter();
+
+        try {
+            write(value, argument, locale, writer);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        return writer.toString();
+    }
+
+    @Override
+    public void write(Object value, String argument, Locale locale, Writer writer) throws IOException {
+        String string = value.toString();
+
+        int i = 0;
+
+        for (int j = 0, n = string.length(); j < n; j++) {
+            String escape = getEscape(string.charAt(j));
+
+            if (escape != null) {
+                writer.write(string, i, j - i);
+                writer.write(escape);
+
+                i = j + 1;
+            }
+        }
+
+        writer.write(string, i, string.length() - i);
+    }
+
+    /**
+     * Returns the escape sequence for a character.
+     *
+     * @param c
+     * The character to escape.
+     *
+     * @return
+     * The escape sequence, or <tt>null</tt> if the character does not need to
+     * be escaped.
+     */
+    protected abstract String getEscape(char c);
+}
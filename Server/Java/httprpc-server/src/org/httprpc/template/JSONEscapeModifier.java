@@ -14,38 +14,44 @@
 
 package org.httprpc.template;
 
-import java.util.Locale;
-
 /**
  * JSON escape modifier.
  */
-public class JSONEscapeModifier implements Modifier {
+public class JSONEscapeModifier extends EscapeModifier {
     @Override
-    public Object apply(Object value, String argument, Locale locale) {
-        StringBuilder resultBuilder = new StringBuilder();
-
-        String string = value.toString();
-
-        for (int i = 0, n = string.length(); i < n; i++) {
-            char c = string.charAt(i);
-
-            if (c == '"' || c == '\\') {
-                resultBuilder.append("\\" + c);
-            } else if (c == '\b') {
-                resultBuilder.append("\\b");
-            } else if (c == '\f') {
-                resultBuilder.append("\\f");
-            } else if (c == '\n') {
-                resultBuilder.append("\\n");
-            } else if (c == '\r') {
-                resultBuilder.append("\\r");
-            } else if (c == '\t') {
-                resultBuilder.append("\\t");
-            } else {
-                resultBuilder.append(c);
+    protected String getEscape(char c) {
+        switch (c) {
+            case '"': {
+                return "\\\"";
+            }
+
+            case '\\': {
+                return "\\\\";
+            }
+
+            case '\b': {
+                return "\\b";
+            }
+
+            case '\f': {
+                return "\\f";
             }
-        }
 
-        return resultBuilder.toString();
+            case '\n': {
+                return "\\n";
+            }
+
+            case '\r': {
+                return "\\r";
+            }
+
+            case '\t': {
+                return "\\t";
+            }
+
+            default: {
+                return null;
+            }
+        }
     }
 }
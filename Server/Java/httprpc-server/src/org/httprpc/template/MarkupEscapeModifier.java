@@ -14,34 +14,32 @@
 
 package org.httprpc.template;
 
-import java.util.Locale;
-
 /**
  * Markup escape modifier.
  */
-public class MarkupEscapeModifier implements Modifier {
+public class MarkupEscapeModifier extends EscapeModifier {
     @Override
-    public Object apply(Object value, String argument, Locale locale) {
-        StringBuilder resultBuilder = new StringBuilder();
+    protected String getEscape(char c) {
+        switch (c) {
+            case '<': {
+                return "&lt;";
+            }
 
-        String string = value.toString();
+            case '>': {
+                return "&gt;";
+            }
 
-        for (int i = 0, n = string.length(); i < n; i++) {
-            char c = string.charAt(i);
+            case '&': {
+                return "&amp;";
+            }
 
-            if (c == '<') {
-                resultBuilder.append("&lt;");
-            } else if (c == '>') {
-                resultBuilder.append("&gt;");
-            } else if (c == '&') {
-                resultBuilder.append("&amp;");
-            } else if (c == '"') {
-                resultBuilder.append("&quot;");
-            } else {
-                resultBuilder.append(c);
+            case '"': {
+                return "&quot;";
             }
-        }
 
-        return resultBuilder.toString();
+            default: {
+                return null;
+            }
+        }
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.template;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+// Paged reader
+class PagedReader extends Reader {
+    private Reader reader;
+    private int pageSize;
+
+    private int position = 0;
+    private int count = 0;
+
+    private boolean endOfFile = false;
+
+    private ArrayList<char[]> pages = new ArrayList<>();
+    private LinkedList<Integer> marks = new LinkedList<>();
+
+    private static int DEFAULT_PAGE_SIZE = 1024;
+    private static int EOF = -1;
+
+    public PagedReader(Reader reader) {
+        this(reader, DEFAULT_PAGE_SIZE);
+    }
+
+    public PagedReader(Reader reader, int pageSize) {
+        if (reader == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.reader = reader;
+        this.pageSize = pageSize;
+    }
+
+    private PagedReader(PagedReader pagedReader, int position) {
+        reader = new StringReader("");
+        pageSize = pagedReader.pageSize;
+
+        this.position = position;
+
+        count = pagedReader.count;
+
+        endOfFile = true;
+
+        pages.addAll(pagedReader.pages);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c;
+        if (position < count) {
+            c = pages.get(position / pageSize)[position % pageSize];
+
+            position++;
+        } else if (!endOfFile) {
+            c = reader.read();
+
+            if (c != EOF) {
+                if (position / pageSize == pages.size()) {
+                    pages.add(new char[pageSize]);
+                }
+
+                pages.get(pages.size() - 1)[position % pageSize] = (char)c;
+
+                position++;
+                count++;
+            } else {
+                endOfFile = true;
+            }
+        } else {
+            c = EOF;
+        }
+
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int c = 0;
+        int n = 0;
+
+        for (int i = off; i < cbuf.length && n < len; i++) {
+            c = read();
+
+            if (c == EOF) {
+                break;
+            }
+
+            cbuf[i] = (char)c;
+
+            n++;
+        }
+
+        return (c == EOF && n == 0) ? EOF : n;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return (position < count) || reader.ready();
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        marks.push(position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        if (marks.isEmpty()) {
+            position = 0;
+        } else {
+            position = marks.pop();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Returns a read-only view of the buffered content, starting at the most
+    // recent mark, or at the current position if no mark has been set; the
+    // mark is consumed
+    public PagedReader split() {
+        return new PagedReader(this, marks.isEmpty() ? position : marks.pop());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Interface representing a modifier that can write its result directly to
+ * the output. When a streaming modifier is the last modifier applied to a
+ * variable, the template engine calls {@link #write(Object, String, Locale, Writer)}
+ * instead of {@link #apply(Object, String, Locale)}, avoiding the creation of
+ * an intermediate value.
+ */
+public interface StreamingModifier extends Modifier {
+    /**
+     * Applies the modifier and writes the result to a character stream.
+     *
+     * @param value
+     * The value to which the modifier is being be applied.
+     *
+     * @param argument
+     * The modifier argument, or <tt>null</tt> if no argument was provided.
+     *
+     * @param locale
+     * The locale in which the modifier is being applied.
+     *
+     * @param writer
+     * The character stream to write to.
+     *
+     * @throws IOException
+     * If an exception occurs.
+     */
+    public void write(Object value, String argument, Locale locale, Writer writer) throws IOException;
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.template;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that caches the content of template documents. In production mode,
+ * each template is read and validated once and then reused for the lifetime
+ * of the cache. In development mode, templates loaded from the file system
+ * are also monitored for changes, and a template is reloaded the next time it
+ * is used after its file has been modified.
+ */
+public class TemplateCache implements AutoCloseable {
+    /**
+     * Cache mode enumeration.
+     */
+    public enum Mode {
+        /**
+         * Templates are loaded once and never invalidated.
+         */
+        PRODUCTION,
+
+        /**
+         * Templates are reloaded when their files change.
+         */
+        DEVELOPMENT
+    }
+
+    private Mode mode;
+
+    private ConcurrentHashMap<String, PagedReader> templates = new ConcurrentHashMap<>();
+
+    private WatchService watchService = null;
+    private HashSet<Path> directories = new HashSet<>();
+    private ConcurrentHashMap<Path, String> files = new ConcurrentHashMap<>();
+
+    private static final int EOF = -1;
+
+    private static final String UTF_8_ENCODING = "UTF-8";
+
+    private static final String FILE_PROTOCOL = "file";
+
+    /**
+     * Constructs a new template cache.
+     *
+     * @param mode
+     * The cache mode.
+     */
+    public TemplateCache(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.mode = mode;
+    }
+
+    /**
+     * Returns the cache mode.
+     *
+     * @return
+     * The cache mode.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Loads and validates a template and any templates it includes, if they
+     * have not already been loaded. Include names are resolved relative to
+     * the given template, as they are when the template is processed.
+     *
+     * @param url
+     * The URL of the template.
+     *
+     * @throws IOException
+     * If a template cannot be read, or is not well-formed.
+     */
+    public void compile(URL url) throws IOException {
+        if (url == null) {
+            throw new IllegalArgumentException();
+        }
+
+        HashSet<String> visited = new HashSet<>();
+
+        LinkedList<URL> urls = new LinkedList<>();
+
+        urls.add(url);
+
+        while (!urls.isEmpty()) {
+            URL next = urls.remove();
+
+            if (!visited.add(next.toExternalForm())) {
+                continue;
+            }
+
+            LinkedList<String> includes = new LinkedList<>();
+
+            load(next, includes);
+
+            for (String include : includes) {
+                urls.add(new URL(url, include));
+            }
+        }
+    }
+
+    /**
+     * Discards the cached content of a template. The template will be reloaded
+     * the next time it is used.
+     *
+     * @param url
+     * The URL of the template.
+     */
+    public void invalidate(URL url) {
+        if (url == null) {
+            throw new IllegalArgumentException();
+        }
+
+        templates.remove(url.toExternalForm());
+    }
+
+    /**
+     * Stops monitoring template files for changes.
+     *
+     * @throws IOException
+     * If an exception occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+
+            watchService = null;
+        }
+
+        directories.clear();
+        files.clear();
+    }
+
+    // Returns a reader positioned at the start of the template's content
+    PagedReader get(URL url) throws IOException {
+        PagedReader template = templates.get(url.toExternalForm());
+
+        if (template == null) {
+            template = load(url, new LinkedList<String>());
+        }
+
+        return template.split();
+    }
+
+    private PagedReader load(URL url, LinkedList<String> includes) throws IOException {
+        String key = url.toExternalForm();
+
+        PagedReader template = templates.get(key);
+
+        if (template == null) {
+            if (mode == Mode.DEVELOPMENT) {
+                watch(url);
+            }
+
+            try (InputStream inputStream = url.openStream()) {
+                template = new PagedReader(new InputStreamReader(inputStream, Charset.forName(UTF_8_ENCODING)));
+
+                validate(template, includes);
+            } catch (IOException exception) {
+                throw new IOException(String.format("%s (%s)", exception.getMessage(), key), exception);
+            }
+
+            template.reset();
+
+            PagedReader previous = templates.putIfAbsent(key, template);
+
+            if (previous != null) {
+                template = previous;
+            }
+        }
+
+        return template;
+    }
+
+    // Reads the entire content of a template without caching or validating it
+    static PagedReader read(URL url) throws IOException {
+        PagedReader template;
+        try (InputStream inputStream = url.openStream()) {
+            template = new PagedReader(new InputStreamReader(inputStream, Charset.forName(UTF_8_ENCODING)));
+
+            while (template.read() != EOF) {
+                // No-op
+            }
+        }
+
+        template.reset();
+
+        return template;
+    }
+
+    private static void validate(PagedReader reader, LinkedList<String> includes) throws IOException {
+        int depth = 0;
+
+        int c = reader.read();
+
+        while (c != EOF) {
+            if (c == '{') {
+                c = reader.read();
+
+                if (c == '{') {
+                    int type = reader.read();
+
+                    c = (type == '#' || type == '/' || type == '>' || type == '!') ? reader.read() : type;
+
+                    StringBuilder markerBuilder = new StringBuilder();
+
+                    while (c != '}' && c != EOF) {
+                        markerBuilder.append((char)c);
+
+                        c = reader.read();
+                    }
+
+                    if (c == EOF) {
+                        throw new IOException("Unexpected end of character stream.");
+                    }
+
+                    c = reader.read();
+
+                    if (c != '}') {
+                        throw new IOException("Improperly terminated marker.");
+                    }
+
+                    String marker = markerBuilder.toString();
+
+                    if (marker.length() == 0) {
+                        throw new IOException("Invalid marker.");
+                    }
+
+                    if (type == '#') {
+                        depth++;
+                    } else if (type == '/') {
+                        if (--depth < 0) {
+                            throw new IOException("Unexpected section end marker.");
+                        }
+                    } else if (type == '>') {
+                        includes.add(marker);
+                    }
+
+                    c = reader.read();
+                }
+            } else {
+                c = reader.read();
+            }
+        }
+
+        if (depth > 0) {
+            throw new IOException("Unterminated section.");
+        }
+    }
+
+    private synchronized void watch(URL url) throws IOException {
+        if (!url.getProtocol().equals(FILE_PROTOCOL)) {
+            return;
+        }
+
+        Path path;
+        try {
+            path = Paths.get(url.toURI()).toAbsolutePath();
+        } catch (URISyntaxException exception) {
+            throw new IOException(exception);
+        }
+
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+
+            Thread thread = new Thread(new Runnable() {
+                private WatchService watchService = TemplateCache.this.watchService;
+
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            WatchKey key = watchService.take();
+
+                            Path directory = (Path)key.watchable();
+
+                            for (WatchEvent<?> event : key.pollEvents()) {
+                                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                                    templates.clear();
+                                } else {
+                                    String file = files.get(directory.resolve((Path)event.context()));
+
+                                    if (file != null) {
+                                        templates.remove(file);
+                                    }
+                                }
+                            }
+
+                            key.reset();
+                        }
+                    } catch (ClosedWatchServiceException | InterruptedException exception) {
+                        // No-op
+                    }
+                }
+            }, getClass().getName());
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Path directory = path.getParent();
+
+        if (directories.add(directory)) {
+            directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        }
+
+        files.put(path, url.toExternalForm());
+    }
+}
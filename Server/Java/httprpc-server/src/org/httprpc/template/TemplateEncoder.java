@@ -14,9 +14,9 @@
 
 package org.httprpc.template;
 
+import java.io.CharArrayWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
@@ -32,8 +32,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.httprpc.Encoder;
 
@@ -59,6 +65,12 @@ public class TemplateEncoder implements Encoder {
     private Map<String, Reader> includes = new HashMap<>();
     private LinkedList<Map<String, Reader>> history = new LinkedList<>();
 
+    private ResourceBundle resourceBundle = null;
+
+    private int parallelismThreshold = 0;
+
+    private TemplateCache templateCache = null;
+
     private static HashMap<String, Modifier> modifiers = new HashMap<>();
 
     static {
@@ -126,6 +138,59 @@ public class TemplateEncoder implements Encoder {
         return context;
     }
 
+    /**
+     * Returns the cache from which the engine loads templates.
+     *
+     * @return
+     * The template cache, or <tt>null</tt> if templates are not cached.
+     */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * Sets the cache from which the engine loads templates. By default,
+     * templates are not cached, and are read each time the engine writes a
+     * value.
+     *
+     * @param templateCache
+     * The template cache, or <tt>null</tt> for no cache.
+     */
+    public void setTemplateCache(TemplateCache templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    /**
+     * Returns the minimum number of elements a section must contain before it
+     * is rendered in parallel.
+     *
+     * @return
+     * The parallelism threshold, or <tt>0</tt> if sections are always rendered
+     * sequentially.
+     */
+    public int getParallelismThreshold() {
+        return parallelismThreshold;
+    }
+
+    /**
+     * Sets the minimum number of elements a section must contain before it is
+     * rendered in parallel. Only sections whose lists implement
+     * {@link RandomAccess} are eligible. Elements are rendered in chunks on the
+     * common fork-join pool and written to the output in order, so they must
+     * be safe to access from multiple threads.
+     *
+     * @param parallelismThreshold
+     * The parallelism threshold, or <tt>0</tt> to always render sections
+     * sequentially.
+     */
+    public void setParallelismThreshold(int parallelismThreshold) {
+        if (parallelismThreshold < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.parallelismThreshold = parallelismThreshold;
+    }
+
     @Override
     public String getContentType(Object value) {
         return String.format("%s;charset=%s", contentType, UTF_8_ENCODING);
@@ -191,14 +256,17 @@ public class TemplateEncoder implements Encoder {
      */
     public void writeValue(Object value, Writer writer, Locale locale) throws IOException {
         if (value != null) {
-            try (InputStream inputStream = url.openStream()) {
-                Reader reader = new PagedReader(new InputStreamReader(inputStream, Charset.forName(UTF_8_ENCODING)));
+            // Resolve the resource bundle at most once per render
+            resourceBundle = null;
 
-                writeRoot(value, writer, locale, reader);
-            }
+            writeRoot(value, writer, locale, getTemplate(url));
         }
     }
 
+    private PagedReader getTemplate(URL url) throws IOException {
+        return (templateCache == null) ? TemplateCache.read(url) : templateCache.get(url);
+    }
+
     private void writeRoot(Object root, Writer writer, Locale locale, Reader reader) throws IOException {
         Map<?, ?> dictionary;
         if (root instanceof Map<?, ?>) {
@@ -274,38 +342,45 @@ public class TemplateEncoder implements Encoder {
                             List<?> list = (List<?>)value;
 
                             try {
-                                Iterator<?> iterator = list.iterator();
-
-                                if (iterator.hasNext()) {
+                                if (parallelismThreshold > 0 && list instanceof RandomAccess
+                                    && list.size() >= parallelismThreshold && reader instanceof PagedReader) {
                                     includes = new HashMap<>();
 
-                                    while (iterator.hasNext()) {
-                                        Object element = iterator.next();
+                                    writeSection(list, writer, locale, (PagedReader)reader);
+                                } else {
+                                    Iterator<?> iterator = list.iterator();
 
-                                        if (iterator.hasNext()) {
-                                            reader.mark(0);
-                                        }
+                                    if (iterator.hasNext()) {
+                                        includes = new HashMap<>();
 
-                                        writeRoot(element, writer, locale, reader);
+                                        while (iterator.hasNext()) {
+                                            Object element = iterator.next();
 
-                                        if (iterator.hasNext()) {
-                                            reader.reset();
-                                        }
-                                    }
-                                } else {
-                                    includes = new AbstractMap<String, Reader>() {
-                                        @Override
-                                        public Reader get(Object key) {
-                                            return new EmptyReader();
-                                        }
+                                            if (iterator.hasNext()) {
+                                                reader.mark(0);
+                                            }
 
-                                        @Override
-                                        public Set<Entry<String, Reader>> entrySet() {
-                                            throw new UnsupportedOperationException();
-                                        }
-                                    };
+                                            writeRoot(element, writer, locale, reader);
 
-                                    writeRoot(Collections.emptyMap(), new NullWriter(), locale, reader);
+                                            if (iterator.hasNext()) {
+                                                reader.reset();
+                                            }
+                                        }
+                                    } else {
+                                        includes = new AbstractMap<String, Reader>() {
+                                            @Override
+                                            public Reader get(Object key) {
+                                                return new EmptyReader();
+                                            }
+
+                                            @Override
+                                            public Set<Entry<String, Reader>> entrySet() {
+                                                throw new UnsupportedOperationException();
+                                            }
+                                        };
+
+                                        writeRoot(Collections.emptyMap(), new NullWriter(), locale, reader);
+                                    }
                                 }
                             } finally {
                                 if (list instanceof AutoCloseable) {
@@ -331,15 +406,11 @@ public class TemplateEncoder implements Encoder {
                             Reader include = includes.get(marker);
 
                             if (include == null) {
-                                URL url = new URL(this.url, marker);
-
-                                try (InputStream inputStream = url.openStream()) {
-                                    include = new PagedReader(new InputStreamReader(inputStream));
+                                include = getTemplate(new URL(url, marker));
 
-                                    writeRoot(dictionary, writer, locale, include);
+                                writeRoot(dictionary, writer, locale, include);
 
-                                    includes.put(marker, include);
-                                }
+                                includes.put(marker, include);
                             } else {
                                 include.reset();
 
@@ -363,7 +434,11 @@ public class TemplateEncoder implements Encoder {
                             if (key.startsWith(CONTEXT_PREFIX)) {
                                 value = context.get(key.substring(CONTEXT_PREFIX.length()));
                             } else if (key.startsWith(RESOURCE_PREFIX) && baseName != null) {
-                                value = ResourceBundle.getBundle(baseName, locale).getString(key.substring(RESOURCE_PREFIX.length()));
+                                if (resourceBundle == null) {
+                                    resourceBundle = ResourceBundle.getBundle(baseName, locale);
+                                }
+
+                                value = resourceBundle.getString(key.substring(RESOURCE_PREFIX.length()));
                             } else if (key.equals(".")) {
                                 value = dictionary.get(key);
                             } else {
@@ -385,6 +460,8 @@ public class TemplateEncoder implements Encoder {
                             }
 
                             if (value != null) {
+                                boolean written = false;
+
                                 if (components.length > 1) {
                                     for (int i = 1; i < components.length; i++) {
                                         String component = components[i];
@@ -403,12 +480,20 @@ public class TemplateEncoder implements Encoder {
                                         Modifier modifier = modifiers.get(name);
 
                                         if (modifier != null) {
-                                            value = modifier.apply(value, argument, locale);
+                                            if (i == components.length - 1 && modifier instanceof StreamingModifier) {
+                                                ((StreamingModifier)modifier).write(value, argument, locale, writer);
+
+                                                written = true;
+                                            } else {
+                                                value = modifier.apply(value, argument, locale);
+                                            }
                                         }
                                     }
                                 }
 
-                                writer.append(value.toString());
+                                if (!written) {
+                                    writer.append(value.toString());
+                                }
                             }
 
                             break;
@@ -430,122 +515,91 @@ public class TemplateEncoder implements Encoder {
         }
     }
 
-    /**
-     * Returns the modifier map.
-     *
-     * @return
-     * The modifier map.
-     */
-    public static Map<String, Modifier> getModifiers() {
-        return modifiers;
-    }
-}
-
-// Paged reader
-class PagedReader extends Reader {
-    private Reader reader;
-    private int pageSize;
-
-    private int position = 0;
-    private int count = 0;
+    private void writeSection(final List<?> list, Writer writer, final Locale locale, PagedReader reader) throws IOException {
+        // Render the first element on this thread, which moves the reader past the section content
+        reader.mark(0);
 
-    private boolean endOfFile = false;
+        writeRoot(list.get(0), writer, locale, reader);
 
-    private ArrayList<char[]> pages = new ArrayList<>();
-    private LinkedList<Integer> marks = new LinkedList<>();
+        final PagedReader section = reader.split();
 
-    private static int DEFAULT_PAGE_SIZE = 1024;
-    private static int EOF = -1;
+        // Render the remaining elements in chunks and write the results in order
+        int n = list.size();
 
-    public PagedReader(Reader reader) {
-        this(reader, DEFAULT_PAGE_SIZE);
-    }
-
-    public PagedReader(Reader reader, int pageSize) {
-        if (reader == null) {
-            throw new IllegalArgumentException();
-        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        this.reader = reader;
-        this.pageSize = pageSize;
-    }
+        int chunkSize = Math.max((n - 1) / (pool.getParallelism() * 4), 1);
 
-    @Override
-    public int read() throws IOException {
-        int c;
-        if (position < count) {
-            c = pages.get(position / pageSize)[position % pageSize];
+        ArrayList<Future<CharArrayWriter>> chunks = new ArrayList<>();
 
-            position++;
-        } else if (!endOfFile) {
-            c = reader.read();
+        // Fork/join tasks ignore interrupts, so running chunks poll this flag instead
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
 
-            if (c != EOF) {
-                if (position / pageSize == pages.size()) {
-                    pages.add(new char[pageSize]);
-                }
+        for (int i = 1; i < n; i += chunkSize) {
+            final int start = i;
+            final int end = Math.min(i + chunkSize, n);
 
-                pages.get(pages.size() - 1)[position % pageSize] = (char)c;
+            chunks.add(pool.submit(new Callable<CharArrayWriter>() {
+                @Override
+                public CharArrayWriter call() throws IOException {
+                    TemplateEncoder engine = new TemplateEncoder(url, contentType, baseName);
 
-                position++;
-                count++;
-            } else {
-                endOfFile = true;
-            }
-        } else {
-            c = EOF;
-        }
+                    engine.context = context;
+                    engine.resourceBundle = resourceBundle;
+                    engine.templateCache = templateCache;
 
-        return c;
-    }
+                    PagedReader reader = section.split();
 
-    @Override
-    public int read(char[] cbuf, int off, int len) throws IOException {
-        int c = 0;
-        int n = 0;
+                    CharArrayWriter writer = new CharArrayWriter();
 
-        for (int i = off; i < cbuf.length && n < len; i++) {
-            c = read();
+                    for (int j = start; j < end && !cancelled.get(); j++) {
+                        reader.mark(0);
 
-            if (c == EOF) {
-                break;
-            }
+                        engine.writeRoot(list.get(j), writer, locale, reader);
 
-            cbuf[i] = (char)c;
+                        reader.reset();
+                    }
 
-            n++;
+                    return writer;
+                }
+            }));
         }
 
-        return (c == EOF && n == 0) ? EOF : n;
-    }
+        try {
+            for (Future<CharArrayWriter> chunk : chunks) {
+                chunk.get().writeTo(writer);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
 
-    @Override
-    public boolean ready() throws IOException {
-        return (position < count) || reader.ready();
-    }
+            throw new InterruptedIOException();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
 
-    @Override
-    public void mark(int readAheadLimit) {
-        marks.push(position);
-    }
-
-    @Override
-    public boolean markSupported() {
-        return true;
-    }
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } finally {
+            cancelled.set(true);
 
-    @Override
-    public void reset() {
-        if (marks.isEmpty()) {
-            position = 0;
-        } else {
-            position = marks.pop();
+            for (Future<CharArrayWriter> chunk : chunks) {
+                chunk.cancel(false);
+            }
         }
     }
 
-    @Override
-    public void close() throws IOException {
-        reader.close();
+    /**
+     * Returns the modifier map.
+     *
+     * @return
+     * The modifier map.
+     */
+    public static Map<String, Modifier> getModifiers() {
+        return modifiers;
     }
 }
 
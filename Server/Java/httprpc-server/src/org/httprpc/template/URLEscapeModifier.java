@@ -14,14 +14,16 @@
 
 package org.httprpc.template;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.util.Locale;
 
 /**
  * URL escape modifier.
  */
-public class URLEscapeModifier implements Modifier {
+public class URLEscapeModifier implements StreamingModifier {
     private static final String UTF_8_ENCODING = "UTF-8";
 
     @Override
@@ -35,4 +37,9 @@ public class URLEscapeModifier implements Modifier {
 
         return result;
     }
+
+    @Override
+    public void write(Object value, String argument, Locale locale, Writer writer) throws IOException {
+        writer.write(URLEncoder.encode(value.toString(), UTF_8_ENCODING));
+    }
 }
@@ -67,6 +67,17 @@ public class IteratorAdapter extends AbstractList<Object> implements AutoCloseab
         };
     }
 
+    /**
+     * Returns a pipeline for transforming the contents of the adapter. Closing
+     * the pipeline closes the adapter.
+     *
+     * @return
+     * A pipeline whose source is this adapter.
+     */
+    public Pipeline<Object> pipeline() {
+        return Pipeline.of(this);
+    }
+
     @Override
     public void close() throws Exception {
         if (iterator instanceof AutoCloseable) {
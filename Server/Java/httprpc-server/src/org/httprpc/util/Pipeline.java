@@ -0,0 +1,411 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.util;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Class that applies a sequence of lazy transformations to the contents of an
+ * iterable source. Elements are transformed one at a time as the pipeline is
+ * iterated, so no intermediate collections are created.
+ *
+ * If the source's type implements {@link AutoCloseable}, it will be
+ * automatically closed when the pipeline is closed, along with any inner
+ * iterables opened by {@link #flatMap(Function)} that have not been fully
+ * read.
+ *
+ * @param <T>
+ * The element type.
+ */
+public class Pipeline<T> extends AbstractList<T> implements AutoCloseable {
+    private Iterable<?> source;
+    private Iterable<T> iterable;
+
+    // Inner iterables opened by flatMap() that have not yet been closed
+    private LinkedList<AutoCloseable> resources;
+
+    private Pipeline(Iterable<?> source, Iterable<T> iterable, LinkedList<AutoCloseable> resources) {
+        this.source = source;
+        this.iterable = iterable;
+        this.resources = resources;
+    }
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param <T>
+     * The element type.
+     *
+     * @param source
+     * The source of the pipeline's elements.
+     *
+     * @return
+     * The new pipeline.
+     */
+    public static <T> Pipeline<T> of(Iterable<T> source) {
+        if (source == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, source, new LinkedList<AutoCloseable>());
+    }
+
+    /**
+     * Transforms each element of the pipeline.
+     *
+     * @param <R>
+     * The result type.
+     *
+     * @param mapper
+     * The function to apply to each element.
+     *
+     * @return
+     * A pipeline containing the transformed elements.
+     */
+    public <R> Pipeline<R> map(final Function<? super T, ? extends R> mapper) {
+        if (mapper == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, new Iterable<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+
+                return new Iterator<R>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public R next() {
+                        return mapper.apply(iterator.next());
+                    }
+                };
+            }
+        }, resources);
+    }
+
+    /**
+     * Selects the elements of the pipeline that match a predicate.
+     *
+     * @param predicate
+     * The predicate to apply to each element.
+     *
+     * @return
+     * A pipeline containing the matching elements.
+     */
+    public Pipeline<T> filter(final Predicate<? super T> predicate) {
+        if (predicate == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+
+                return new Iterator<T>() {
+                    private T next = null;
+                    private boolean hasNext = false;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!hasNext && iterator.hasNext()) {
+                            T element = iterator.next();
+
+                            if (predicate.test(element)) {
+                                next = element;
+                                hasNext = true;
+                            }
+                        }
+
+                        return hasNext;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        T element = next;
+
+                        next = null;
+                        hasNext = false;
+
+                        return element;
+                    }
+                };
+            }
+        }, resources);
+    }
+
+    /**
+     * Truncates the pipeline. No further elements are read from the source
+     * once the limit has been reached.
+     *
+     * @param count
+     * The maximum number of elements to return.
+     *
+     * @return
+     * A pipeline containing at most the given number of elements.
+     */
+    public Pipeline<T> limit(final long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+
+                return new Iterator<T>() {
+                    private long i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < count && iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        i++;
+
+                        return iterator.next();
+                    }
+                };
+            }
+        }, resources);
+    }
+
+    /**
+     * Discards a number of elements from the start of the pipeline.
+     *
+     * @param count
+     * The number of elements to discard.
+     *
+     * @return
+     * A pipeline containing the remaining elements.
+     */
+    public Pipeline<T> skip(final long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+
+                return new Iterator<T>() {
+                    private long i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (i < count && iterator.hasNext()) {
+                            iterator.next();
+
+                            i++;
+                        }
+
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        return iterator.next();
+                    }
+                };
+            }
+        }, resources);
+    }
+
+    /**
+     * Replaces each element of the pipeline with the contents of an iterable.
+     * If an iterable's type implements {@link AutoCloseable}, it will be
+     * closed once its contents have been read, or when the pipeline is closed
+     * if iteration stops early.
+     *
+     * @param <R>
+     * The result type.
+     *
+     * @param mapper
+     * The function to apply to each element.
+     *
+     * @return
+     * A pipeline containing the concatenated contents of the iterables.
+     */
+    public <R> Pipeline<R> flatMap(final Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        if (mapper == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return new Pipeline<>(source, new Iterable<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+
+                return new Iterator<R>() {
+                    private Iterable<? extends R> current = null;
+                    private Iterator<? extends R> elements = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!elements.hasNext()) {
+                            release(current);
+
+                            current = null;
+
+                            if (!iterator.hasNext()) {
+                                return false;
+                            }
+
+                            current = mapper.apply(iterator.next());
+
+                            if (current instanceof AutoCloseable) {
+                                resources.add((AutoCloseable)current);
+                            }
+
+                            elements = (current == null) ? Collections.<R>emptyIterator() : current.iterator();
+                        }
+
+                        return true;
+                    }
+
+                    @Override
+                    public R next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        return elements.next();
+                    }
+                };
+            }
+        }, resources);
+    }
+
+    private void release(Object value) {
+        // Remove by identity; lists such as ResultSetAdapter compare by content
+        Iterator<AutoCloseable> iterator = resources.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next() == value) {
+                iterator.remove();
+
+                break;
+            }
+        }
+
+        close(value);
+    }
+
+    private static void close(Object value) {
+        if (value instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable)value).close();
+            } catch (Exception exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return iterable.iterator();
+    }
+
+    /**
+     * Closes any inner iterables left open by an incomplete iteration,
+     * followed by the source. Every resource is closed even if closing an
+     * earlier one fails.
+     *
+     * @throws IOException
+     * If an exception occurs while closing a resource. Any later failures are
+     * attached to the first as suppressed exceptions.
+     */
+    @Override
+    public void close() throws IOException {
+        Exception failure = null;
+
+        while (!resources.isEmpty()) {
+            failure = close(resources.removeLast(), failure);
+        }
+
+        if (source instanceof AutoCloseable) {
+            failure = close((AutoCloseable)source, failure);
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException)failure;
+        } else if (failure != null) {
+            throw (RuntimeException)failure;
+        }
+    }
+
+    // Closes a resource, returning the first failure as an IOException or RuntimeException
+    private static Exception close(AutoCloseable resource, Exception failure) {
+        try {
+            resource.close();
+        } catch (IOException | RuntimeException exception) {
+            if (failure == null) {
+                return exception;
+            }
+
+            failure.addSuppressed(exception);
+        } catch (Exception exception) {
+            if (failure == null) {
+                return new IOException(exception);
+            }
+
+            failure.addSuppressed(exception);
+        }
+
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName();
+    }
+}
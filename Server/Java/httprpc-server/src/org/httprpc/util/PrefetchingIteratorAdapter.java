@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterator adapter that reads ahead from the source iterator on a background
+ * thread. Up to a fixed number of elements are buffered; when the buffer is
+ * full, the background thread waits for the consumer to catch up. This allows
+ * the latency of a slow cursor to overlap with the encoding of the elements
+ * that have already been retrieved.
+ *
+ * Closing the adapter stops the background thread and then closes the source
+ * iterator if its type implements {@link AutoCloseable}. If the background
+ * thread does not stop within one second, for example because it is blocked
+ * in the source iterator, closing the adapter does not wait for it; the
+ * source is closed when the background thread returns.
+ *
+ * By default, background threads are taken from a shared pool of at most
+ * {@value #MAXIMUM_POOL_SIZE} threads. If the executor rejects the
+ * background task, for example because every pooled thread is busy, the
+ * adapter does not read ahead; elements are read from the source on the
+ * consuming thread, as by {@link IteratorAdapter}.
+ */
+public class PrefetchingIteratorAdapter extends IteratorAdapter {
+    // Producer
+    private class Producer implements Runnable {
+        @Override
+        public void run() {
+            synchronized (PrefetchingIteratorAdapter.this) {
+                thread = Thread.currentThread();
+            }
+
+            try {
+                if (cancelled) {
+                    return;
+                }
+
+                try {
+                    while (!cancelled && source.hasNext()) {
+                        Object element = source.next();
+
+                        put((element == null) ? NULL : element);
+                    }
+
+                    put(END);
+                } catch (RuntimeException exception) {
+                    put(new Failure(exception));
+                }
+            } catch (InterruptedException exception) {
+                // No-op
+            } finally {
+                boolean release;
+                synchronized (PrefetchingIteratorAdapter.this) {
+                    thread = null;
+
+                    release = orphaned;
+                }
+
+                // Clear the interrupt flag before the thread is returned to its pool
+                Thread.interrupted();
+
+                done.countDown();
+
+                if (release) {
+                    try {
+                        closeSource();
+                    } catch (IOException | RuntimeException exception) {
+                        // No-op
+                    }
+                }
+            }
+        }
+
+        private void put(Object element) throws InterruptedException {
+            // Give up once the adapter is closed, even if the source swallowed the interrupt
+            while (!cancelled) {
+                if (buffer.offer(element, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Producer failure
+    private static class Failure {
+        public final RuntimeException exception;
+
+        public Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+
+    private Iterator<?> source;
+    private ArrayBlockingQueue<Object> buffer;
+
+    private boolean direct = false;
+
+    private volatile boolean cancelled = false;
+    private Thread thread = null;
+    private boolean orphaned = false;
+
+    private CountDownLatch done = new CountDownLatch(1);
+
+    private Object next = null;
+
+    private static final Object NULL = new Object();
+    private static final Object END = new Object();
+
+    private static final long POLL_INTERVAL = 100;
+    private static final long CLOSE_TIMEOUT = 1000;
+
+    /**
+     * The maximum number of threads in the default pool.
+     */
+    public static final int MAXIMUM_POOL_SIZE = 64;
+
+    private static final long KEEP_ALIVE_TIME = 60;
+
+    // Hands tasks directly to idle threads; rejects them once the pool is full
+    private static ThreadPoolExecutor executorService = new ThreadPoolExecutor(0, MAXIMUM_POOL_SIZE,
+        KEEP_ALIVE_TIME, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, PrefetchingIteratorAdapter.class.getName());
+
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    });
+
+    /**
+     * Constructs a new prefetching iterator adapter.
+     *
+     * @param iterator
+     * The source iterator.
+     *
+     * @param capacity
+     * The maximum number of elements to read ahead.
+     */
+    public PrefetchingIteratorAdapter(Iterator<?> iterator, int capacity) {
+        this(iterator, capacity, executorService);
+    }
+
+    /**
+     * Constructs a new prefetching iterator adapter.
+     *
+     * @param iterator
+     * The source iterator.
+     *
+     * @param capacity
+     * The maximum number of elements to read ahead.
+     *
+     * @param executor
+     * The executor that will run the background thread. If the executor
+     * rejects the task, elements are read on the consuming thread.
+     */
+    public PrefetchingIteratorAdapter(Iterator<?> iterator, int capacity, Executor executor) {
+        super(iterator);
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        if (executor == null) {
+            throw new IllegalArgumentException();
+        }
+
+        source = iterator;
+        buffer = new ArrayBlockingQueue<>(capacity);
+
+        try {
+            executor.execute(new Producer());
+        } catch (RejectedExecutionException exception) {
+            // Fall back to reading from the source on the consuming thread
+            direct = true;
+
+            done.countDown();
+        }
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        if (direct) {
+            return super.iterator();
+        }
+
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = buffer.take();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+
+                        throw new RuntimeException(exception);
+                    }
+                }
+
+                if (next instanceof Failure) {
+                    RuntimeException exception = ((Failure)next).exception;
+
+                    next = END;
+
+                    throw exception;
+                }
+
+                return next != END;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Object element = next;
+
+                next = null;
+
+                return (element == NULL) ? null : element;
+            }
+        };
+    }
+
+    /**
+     * Stops the background thread and closes the source iterator.
+     *
+     * @throws IOException
+     * If an exception occurs while closing the source iterator.
+     */
+    @Override
+    public void close() throws IOException {
+        cancelled = true;
+
+        synchronized (this) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        // Release a producer that is waiting for space in the buffer
+        buffer.clear();
+
+        boolean stopped;
+        try {
+            stopped = done.await(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            // Stop waiting, but preserve the caller's interrupt status
+            Thread.currentThread().interrupt();
+
+            stopped = false;
+        }
+
+        if (!stopped) {
+            synchronized (this) {
+                if (thread != null) {
+                    // The producer is blocked in the source; it will close the source when it returns
+                    orphaned = true;
+
+                    return;
+                }
+            }
+        }
+
+        closeSource();
+    }
+
+    private void closeSource() throws IOException {
+        try {
+            super.close();
+        } catch (IOException | RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new IOException(exception);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+
+public class BinderTest {
+    public static class Owner {
+        private String name = null;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Order {
+        private String title = null;
+        private int count = -1;
+        private List<Integer> quantities = null;
+        private Owner owner = null;
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public List<Integer> getQuantities() {
+            return quantities;
+        }
+
+        public void setQuantities(List<Integer> quantities) {
+            this.quantities = quantities;
+        }
+
+        public Owner getOwner() {
+            return owner;
+        }
+
+        public void setOwner(Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    public record Point(int x, double y, boolean visible, String label) {
+    }
+
+    public static class OverloadedBean {
+        private int value = 0;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = -1;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class AmbiguousBean {
+        public void setValue(String value) {
+            // No-op
+        }
+
+        public void setValue(int value) {
+            // No-op
+        }
+    }
+
+    public static class InvalidBean {
+        public void setData(Map<String, Object> data) {
+            // No-op
+        }
+    }
+
+    @Test
+    public void testBean() {
+        Binder binder = Binder.getBinder(Order.class, new HashMap<Class<?>, Binder>());
+
+        HashMap<String, String[]> parameterMap = new HashMap<>();
+
+        parameterMap.put("order.title", new String[] {"abc"});
+        parameterMap.put("order.quantities", new String[] {"1", "2"});
+        parameterMap.put("order.owner.name", new String[] {"joe"});
+        parameterMap.put("title", new String[] {"xyz"});
+
+        Order order = (Order)binder.bind("order.", parameterMap);
+
+        Assert.assertEquals("abc", order.getTitle());
+        Assert.assertEquals(-1, order.getCount());
+        Assert.assertEquals(listOf(1, 2), order.getQuantities());
+        Assert.assertEquals("joe", order.getOwner().getName());
+
+        Assert.assertEquals(4, Binder.getCount(parameterMap, ""));
+        Assert.assertEquals(3, Binder.getCount(parameterMap, "order."));
+
+        Assert.assertNull(binder.bind("other.", parameterMap));
+    }
+
+    @Test
+    public void testOverloadedSetters() {
+        Binder binder = Binder.getBinder(OverloadedBean.class, new HashMap<Class<?>, Binder>());
+
+        HashMap<String, String[]> parameterMap = new HashMap<>();
+
+        parameterMap.put("bean.value", new String[] {"3"});
+
+        Assert.assertEquals(3, ((OverloadedBean)binder.bind("bean.", parameterMap)).getValue());
+
+        try {
+            Binder.getBinder(AmbiguousBean.class, new HashMap<Class<?>, Binder>());
+
+            Assert.fail();
+        } catch (IllegalArgumentException exception) {
+            Assert.assertTrue(exception.getMessage().endsWith("AmbiguousBean.value"));
+        }
+    }
+
+    @Test
+    public void testRecord() {
+        Binder binder = Binder.getBinder(Point.class, new HashMap<Class<?>, Binder>());
+
+        HashMap<String, String[]> parameterMap = new HashMap<>();
+
+        parameterMap.put("point.x", new String[] {"3"});
+        parameterMap.put("point.y", new String[] {"4.5"});
+        parameterMap.put("point.visible", new String[] {"true"});
+        parameterMap.put("point.label", new String[] {"a"});
+
+        Assert.assertEquals(new Point(3, 4.5, true, "a"), binder.bind("point.", parameterMap));
+    }
+
+    @Test
+    public void testPrimitiveDefaults() {
+        Binder binder = Binder.getBinder(Point.class, new HashMap<Class<?>, Binder>());
+
+        HashMap<String, String[]> parameterMap = new HashMap<>();
+
+        parameterMap.put("point.x", new String[] {"3"});
+
+        Assert.assertEquals(new Point(3, 0.0, false, null), binder.bind("point.", parameterMap));
+    }
+
+    @Test
+    public void testUnsupportedTypes() {
+        Assert.assertNull(Binder.getBinder(String.class, new HashMap<Class<?>, Binder>()));
+        Assert.assertNull(Binder.getBinder(Integer.TYPE, new HashMap<Class<?>, Binder>()));
+
+        try {
+            Binder.getBinder(InvalidBean.class, new HashMap<Class<?>, Binder>());
+
+            Assert.fail();
+        } catch (IllegalArgumentException exception) {
+            Assert.assertTrue(exception.getMessage().endsWith("InvalidBean.data"));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Types;
+
+import org.httprpc.sql.ResultSetAdapter;
+import org.httprpc.sql.TestResultSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+import static org.httprpc.WebService.entry;
+
+public class ColumnarJSONEncoderTest {
+    @Test
+    public void testList() throws IOException {
+        String json = encode(listOf(
+            mapOf(entry("a", 1), entry("b", "x"), entry("c", listOf(1, 2))),
+            mapOf(entry("a", 2), entry("b", null), entry("c", listOf()))
+        )).replaceAll("\\s+", "");
+
+        Assert.assertEquals("{\"columns\":[\"a\",\"b\",\"c\"],\"rows\":[[1,\"x\",[1,2]],[2,null,[]]]}", json);
+    }
+
+    @Test
+    public void testNestedValue() throws IOException {
+        String json = encode(listOf(mapOf(entry("a", 1), entry("b", mapOf(entry("c", 2))))));
+
+        Assert.assertEquals("{\n"
+            + "  \"columns\": [\"a\", \"b\"],\n"
+            + "  \"rows\": [\n"
+            + "    [1, {\n"
+            + "      \"c\": 2\n"
+            + "    }]\n"
+            + "  ]\n"
+            + "}", json);
+    }
+
+    @Test
+    public void testResultSet() throws IOException {
+        TestResultSet resultSet = new TestResultSet(new String[] {"id", "owner.name", "title", "owner.id"},
+            new int[] {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR},
+            new Object[] {1, "joe", "abc", 10});
+
+        String json = encode(new ResultSetAdapter(resultSet)).replaceAll("\\s+", "");
+
+        Assert.assertEquals("{\"columns\":[\"id\",\"owner.name\",\"owner.id\",\"title\"],\"rows\":[[1,\"joe\",\"10\",\"abc\"]]}", json);
+        Assert.assertTrue(resultSet.isClosed());
+    }
+
+    @Test
+    public void testScalarList() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        new JSONEncoder().writeValue(listOf(1, "a", listOf(2)), writer);
+
+        Assert.assertEquals(writer.toString(), encode(listOf(1, "a", listOf(2))));
+    }
+
+    @Test
+    public void testEmptyList() throws IOException {
+        Assert.assertEquals("{\"columns\":[],\"rows\":[]}", encode(listOf()).replaceAll("\\s+", ""));
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        String json = encode(mapOf(entry("a", listOf(1, 2)))).replaceAll("\\s+", "");
+
+        Assert.assertEquals("{\"a\":[1,2]}", json);
+    }
+
+    private String encode(Object value) throws IOException {
+        StringWriter writer = new StringWriter();
+
+        ColumnarJSONEncoder encoder = new ColumnarJSONEncoder();
+
+        encoder.writeValue(value, writer);
+
+        return writer.toString();
+    }
+}
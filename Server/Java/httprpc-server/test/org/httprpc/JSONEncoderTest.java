@@ -16,6 +16,17 @@ package org.httprpc;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.httprpc.sql.ResultSetAdapter;
+import org.httprpc.sql.TestResultSet;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -71,6 +82,64 @@ public class JSONEncoderTest {
         Assert.assertTrue(json.equals("{\"a\":\"abc\",\"b\":123,\"c\":true,\"d\":[1,2,3.0],\"e\":{\"x\":1,\"y\":2.0,\"z\":3.0}}"));
     }
 
+    @Test
+    public void testResultSet() throws IOException, SQLException {
+        String[] labels = {"id", "owner.name", "title", "owner.id", "note", "code"};
+        int[] types = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR};
+        Object[] values = {1, "joe", "a\"b", 10L, null, 42};
+
+        ArrayList<Map<String, Object>> rows = new ArrayList<>();
+
+        try (ResultSetAdapter adapter = new ResultSetAdapter(new TestResultSet(labels, types, values))) {
+            for (Map<String, Object> row : adapter) {
+                rows.add(row);
+            }
+        }
+
+        TestResultSet resultSet = new TestResultSet(labels, types, values);
+
+        Assert.assertEquals(encode(mapOf(entry("rows", rows))), encode(mapOf(entry("rows", new ResultSetAdapter(resultSet)))));
+        Assert.assertTrue(resultSet.isClosed());
+    }
+
+    @Test
+    public void testResultSetFailure() throws SQLException {
+        String[] labels = {"id"};
+        int[] types = {Types.INTEGER};
+        Object[] values = {1};
+
+        final TestResultSet resultSet = new TestResultSet(labels, types, values);
+
+        ResultSetAdapter adapter = new ResultSetAdapter((ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {ResultSet.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+                switch (method.getName()) {
+                    case "next": {
+                        throw new SQLException("next");
+                    }
+
+                    case "close": {
+                        throw new SQLException("close");
+                    }
+
+                    default: {
+                        return method.invoke(resultSet, arguments);
+                    }
+                }
+            }
+        }));
+
+        try {
+            encode(adapter);
+
+            Assert.fail();
+        } catch (IOException exception) {
+            Assert.assertEquals("next", exception.getCause().getMessage());
+            Assert.assertEquals("close", exception.getSuppressed()[0].getMessage());
+        }
+    }
+
     private String encode(Object value) throws IOException {
         StringWriter writer = new StringWriter();
 
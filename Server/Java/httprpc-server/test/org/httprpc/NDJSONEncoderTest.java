@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.httprpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.httprpc.sql.ResultSetAdapter;
+import org.httprpc.sql.TestResultSet;
+import org.httprpc.util.IteratorAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+import static org.httprpc.WebService.entry;
+
+public class NDJSONEncoderTest {
+    @Test
+    public void testNDJSON() throws IOException {
+        final ArrayList<String> records = new ArrayList<>();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                records.add(new String(toByteArray(), StandardCharsets.UTF_8));
+            }
+        };
+
+        NDJSONEncoder encoder = new NDJSONEncoder();
+
+        encoder.writeValue(listOf(
+            mapOf(entry("a", 1), entry("b", "x\ny"), entry("c", listOf(1, 2))),
+            mapOf(entry("a", 2), entry("b", null), entry("c", mapOf(entry("d", true))))
+        ), outputStream);
+
+        String first = "{\"a\": 1,\"b\": \"x\\ny\",\"c\": [1,2]}\n";
+        String second = "{\"a\": 2,\"b\": null,\"c\": {\"d\": true}}\n";
+
+        Assert.assertEquals("application/x-ndjson;charset=UTF-8", encoder.getContentType(null));
+        Assert.assertEquals(first, records.get(0));
+        Assert.assertEquals(first + second, records.get(1));
+    }
+
+    @Test
+    public void testResultSet() throws IOException {
+        TestResultSet resultSet = new TestResultSet(new String[] {"id", "owner.name"},
+            new int[] {Types.INTEGER, Types.VARCHAR},
+            new Object[] {1, "joe"});
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        new NDJSONEncoder().writeValue(new ResultSetAdapter(resultSet), outputStream);
+
+        Assert.assertEquals("{\"id\": 1,\"owner\": {\"name\": \"joe\"}}\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertTrue(resultSet.isClosed());
+    }
+
+    @Test
+    public void testCloseFailure() throws IOException {
+        IteratorAdapter adapter = new IteratorAdapter(new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }) {
+            @Override
+            public void close() throws Exception {
+                throw new Exception("close");
+            }
+        };
+
+        try {
+            new NDJSONEncoder().writeValue(adapter, new ByteArrayOutputStream());
+
+            Assert.fail();
+        } catch (IllegalStateException exception) {
+            Assert.assertEquals(1, exception.getSuppressed().length);
+            Assert.assertEquals("close", exception.getSuppressed()[0].getMessage());
+        }
+    }
+
+    @Test
+    public void testEventStream() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        EventStreamEncoder encoder = new EventStreamEncoder();
+
+        encoder.writeValue(listOf(mapOf(entry("a", 1)), "abc"), outputStream);
+
+        Assert.assertEquals("text/event-stream;charset=UTF-8", encoder.getContentType(null));
+        Assert.assertEquals("data: {\"a\": 1}\n\ndata: \"abc\"\n\nevent: end\ndata:\n\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -14,6 +14,10 @@
 
 package org.httprpc.beans;
 
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.RandomAccess;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -22,6 +26,40 @@ import static org.httprpc.WebService.mapOf;
 import static org.httprpc.WebService.entry;
 
 public class BeanAdapterTest {
+    public static class CountingBean {
+        private int count = 0;
+
+        public int getCount() {
+            return ++count;
+        }
+
+        public TestBean.NestedBean getNested() {
+            return new TestBean.NestedBean();
+        }
+    }
+
+    public static class FieldBean {
+        public int y = 2;
+        public String x = "abc";
+        public static String z = "z";
+
+        public String getW() {
+            return "w";
+        }
+    }
+
+    public static class FailingBean {
+        public String getValue() {
+            throw new IllegalStateException();
+        }
+    }
+
+    static class HiddenFailingBean {
+        public String getValue() {
+            throw new IllegalStateException();
+        }
+    }
+
     @Test
     public void testBeanAdapter() {
         BeanAdapter adapter = new BeanAdapter(new TestBean());
@@ -36,4 +74,85 @@ public class BeanAdapterTest {
             entry("g", mapOf(entry("h", mapOf(entry("i", true)))))
         ), adapter);
     }
+
+    @Test
+    public void testMemoizedBeanAdapter() {
+        BeanAdapter adapter = new BeanAdapter(new CountingBean(), true);
+
+        Assert.assertEquals(1, adapter.get("count"));
+        Assert.assertEquals(1, adapter.get("count"));
+        Assert.assertSame(adapter.get("nested"), adapter.get("nested"));
+
+        Assert.assertEquals(mapOf(
+            entry("count", 1),
+            entry("nested", mapOf(entry("i", true)))
+        ), adapter);
+    }
+
+    @Test
+    public void testProjection() {
+        Map<String, Object> adapter = BeanAdapter.adapt(new TestBean(), "c, a, f.i, g.h, x");
+
+        Assert.assertEquals(mapOf(
+            entry("c", "abc"),
+            entry("a", 2L),
+            entry("f", listOf(mapOf(entry("i", true)))),
+            entry("g", mapOf(entry("h", mapOf(entry("i", true)))))
+        ), adapter);
+
+        Assert.assertEquals(listOf("a", "c", "f", "g"), new ArrayList<>(adapter.keySet()));
+
+        Assert.assertNull(adapter.get("b"));
+
+        Assert.assertEquals(new BeanAdapter(new TestBean()), BeanAdapter.adapt(new TestBean(), " "));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Map<String, Object> snapshot = BeanAdapter.snapshot(new TestBean());
+
+        Assert.assertEquals(new BeanAdapter(new TestBean()), snapshot);
+
+        Assert.assertTrue(snapshot.get("f") instanceof RandomAccess);
+
+        try {
+            snapshot.put("a", 0L);
+
+            Assert.fail();
+        } catch (UnsupportedOperationException exception) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFields() {
+        BeanAdapter adapter = new BeanAdapter(new FieldBean());
+
+        Assert.assertEquals(mapOf(
+            entry("w", "w"),
+            entry("x", "abc"),
+            entry("y", 2)
+        ), adapter);
+
+        Assert.assertEquals(listOf("w", "x", "y"), new ArrayList<>(adapter.keySet()));
+    }
+
+    @Test
+    public void testGetterException() {
+        try {
+            new BeanAdapter(new FailingBean()).get("value");
+
+            Assert.fail();
+        } catch (IllegalStateException exception) {
+            // Expected
+        }
+
+        try {
+            new BeanAdapter(new HiddenFailingBean()).get("value");
+
+            Assert.fail();
+        } catch (IllegalStateException exception) {
+            // Expected
+        }
+    }
 }
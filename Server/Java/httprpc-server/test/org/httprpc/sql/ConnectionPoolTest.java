@@ -0,0 +1,344 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+    public static class TestDriver implements Driver {
+        public final AtomicInteger connectionCount = new AtomicInteger(0);
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            connectionCount.incrementAndGet();
+
+            return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class}, new InvocationHandler() {
+                private boolean closed = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] arguments) {
+                    switch (method.getName()) {
+                        case "close": {
+                            closed = true;
+
+                            return null;
+                        }
+
+                        case "isClosed": {
+                            return closed;
+                        }
+
+                        case "isValid": {
+                            return !closed;
+                        }
+
+                        case "getAutoCommit": {
+                            return true;
+                        }
+
+                        case "createStatement": {
+                            return createStatement(proxy);
+                        }
+
+                        case "prepareStatement": {
+                            return prepareStatement();
+                        }
+
+                        case "equals": {
+                            return proxy == arguments[0];
+                        }
+
+                        case "hashCode": {
+                            return System.identityHashCode(proxy);
+                        }
+
+                        default: {
+                            throw new UnsupportedOperationException();
+                        }
+                    }
+                }
+            });
+        }
+
+        private Statement createStatement(final Object connection) {
+            return (Statement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Statement.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] arguments) {
+                    switch (method.getName()) {
+                        case "executeQuery": {
+                            return new TestResultSet(new String[] {"a"}, new int[] {Types.INTEGER}, new Object[] {1});
+                        }
+
+                        case "getConnection": {
+                            return connection;
+                        }
+
+                        case "close": {
+                            return null;
+                        }
+
+                        default: {
+                            throw new UnsupportedOperationException();
+                        }
+                    }
+                }
+            });
+        }
+
+        private PreparedStatement prepareStatement() {
+            return (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] arguments) {
+                    switch (method.getName()) {
+                        case "isClosed": {
+                            return false;
+                        }
+
+                        default: {
+                            throw new UnsupportedOperationException();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private static TestDriver driver = new TestDriver();
+
+    private static final String URL = "jdbc:httprpc-test:";
+
+    @BeforeClass
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @Test
+    public void testReuse() throws SQLException {
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 2)) {
+            int connectionCount = driver.connectionCount.get();
+
+            Connection connection = connectionPool.getConnection();
+
+            Connection physicalConnection = ConnectionPool.getPhysicalConnection(connection);
+
+            connection.close();
+
+            Assert.assertTrue(connection.isClosed());
+            Assert.assertFalse(physicalConnection.isClosed());
+
+            Assert.assertEquals(1, connectionPool.getSize());
+            Assert.assertEquals(1, connectionPool.getIdleCount());
+
+            connection = connectionPool.getConnection();
+
+            Assert.assertSame(physicalConnection, ConnectionPool.getPhysicalConnection(connection));
+            Assert.assertEquals(connectionCount + 1, driver.connectionCount.get());
+
+            Assert.assertFalse(ConnectionPool.release(physicalConnection));
+            Assert.assertTrue(ConnectionPool.release(connection));
+            Assert.assertTrue(connection.isClosed());
+
+            Assert.assertEquals(1, connectionPool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void testWrappers() throws SQLException {
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 1)) {
+            Connection connection = connectionPool.getConnection();
+
+            Assert.assertSame(connection, connection.unwrap(Connection.class));
+            Assert.assertTrue(connection.isWrapperFor(Connection.class));
+
+            Statement statement = connection.createStatement();
+
+            Assert.assertSame(connection, statement.getConnection());
+            Assert.assertSame(statement, statement.unwrap(Statement.class));
+
+            ResultSet resultSet = statement.executeQuery("select a from test");
+
+            Assert.assertSame(statement, resultSet.getStatement());
+
+            new ResultSetAdapter(resultSet).close();
+
+            Assert.assertTrue(connection.isClosed());
+            Assert.assertEquals(1, connectionPool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void testPrepare() throws SQLException {
+        Parameters parameters = Parameters.parse("select a from test where a = :a");
+
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 1)) {
+            Connection connection = connectionPool.getConnection();
+
+            PreparedStatement statement = parameters.prepare(connection);
+
+            Assert.assertSame(connection, statement.getConnection());
+            Assert.assertTrue(ConnectionPool.isCached(statement));
+
+            Statement physicalStatement = ConnectionPool.getPhysicalStatement(statement);
+
+            Assert.assertSame(physicalStatement, ConnectionPool.getPhysicalStatement(parameters.prepare(connection)));
+
+            connection.close();
+
+            connection = connectionPool.getConnection();
+
+            statement = parameters.prepare(connection);
+
+            Assert.assertSame(connection, statement.getConnection());
+            Assert.assertSame(physicalStatement, ConnectionPool.getPhysicalStatement(statement));
+
+            connection.close();
+
+            try {
+                parameters.prepare(connection);
+
+                Assert.fail();
+            } catch (SQLException exception) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testIdleOrder() throws SQLException {
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 2)) {
+            Connection connection1 = connectionPool.getConnection();
+            Connection connection2 = connectionPool.getConnection();
+
+            Connection physicalConnection2 = ConnectionPool.getPhysicalConnection(connection2);
+
+            connection1.close();
+            connection2.close();
+
+            // The most recently returned connection is reused first
+            for (int i = 0; i < 3; i++) {
+                Connection connection = connectionPool.getConnection();
+
+                Assert.assertSame(physicalConnection2, ConnectionPool.getPhysicalConnection(connection));
+
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDataSourceProperties() throws SQLException {
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 1)) {
+            PrintWriter logWriter = new PrintWriter(new StringWriter());
+
+            connectionPool.setLogWriter(logWriter);
+            connectionPool.setLoginTimeout(10);
+
+            Assert.assertSame(logWriter, connectionPool.getLogWriter());
+            Assert.assertEquals(10, connectionPool.getLoginTimeout());
+        }
+    }
+
+    @Test
+    public void testTimeout() throws SQLException {
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 1)) {
+            connectionPool.setConnectionTimeout(50);
+
+            Connection connection = connectionPool.getConnection();
+
+            try {
+                connectionPool.getConnection();
+
+                Assert.fail();
+            } catch (SQLTimeoutException exception) {
+                // Expected
+            }
+
+            connection.close();
+
+            connectionPool.getConnection().close();
+        }
+    }
+
+    @Test
+    public void testClose() throws SQLException {
+        Connection physicalConnection;
+
+        try (ConnectionPool connectionPool = new ConnectionPool(URL, null, null, 1)) {
+            Connection connection = connectionPool.getConnection();
+
+            physicalConnection = ConnectionPool.getPhysicalConnection(connection);
+
+            connection.close();
+        }
+
+        Assert.assertTrue(physicalConnection.isClosed());
+    }
+}
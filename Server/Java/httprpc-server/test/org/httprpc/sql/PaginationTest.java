@@ -0,0 +1,268 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+import static org.httprpc.WebService.entry;
+
+public class PaginationTest {
+    @Test
+    public void testSQL() {
+        Pagination pagination = new Pagination(Parameters.parse("select * from pet where owner = :owner or species = :species"), "name", "id");
+
+        Assert.assertEquals("select * from pet where owner = ? or species = ? order by name, id limit ?",
+            pagination.getFirstSQL(Pagination.Dialect.LIMIT));
+
+        Assert.assertEquals("select * from pet where (owner = ? or species = ?) and (name, id) > (?, ?) order by name, id limit ?",
+            pagination.getNextSQL(Pagination.Dialect.LIMIT));
+
+        Assert.assertEquals("select * from pet where owner = ? or species = ? order by name, id fetch first ? rows only",
+            pagination.getFirstSQL(Pagination.Dialect.FETCH_FIRST));
+
+        Assert.assertEquals("select * from pet where (owner = ? or species = ?) and name >= ? and (name > ? or id > ?)"
+            + " order by name, id fetch first ? rows only",
+            pagination.getNextSQL(Pagination.Dialect.FETCH_FIRST));
+
+        Assert.assertEquals("select * from pet where (owner = ? or species = ?) and name >= ? and (name > ? or id > ?)"
+            + " order by name, id offset 0 rows fetch next ? rows only",
+            pagination.getNextSQL(Pagination.Dialect.OFFSET_FETCH));
+    }
+
+    @Test
+    public void testTrailingClauses() {
+        Pagination pagination = new Pagination(Parameters.parse("select p.owner, count(*) as total from pet p"
+            + " group by p.owner having count(*) > :count"), "p.owner");
+
+        Assert.assertEquals("select p.owner, count(*) as total from pet p where p.owner > ?"
+            + " group by p.owner having count(*) > ? order by p.owner limit ?",
+            pagination.getNextSQL(Pagination.Dialect.LIMIT));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testOrderedQuery() {
+        new Pagination(Parameters.parse("select * from pet order by name"), "id");
+    }
+
+    @Test
+    public void testToken() {
+        Timestamp timestamp = new Timestamp(1000);
+
+        timestamp.setNanos(123456789);
+
+        Object[] values = new Object[] {"abc", 10L, 2.5, true, null, timestamp};
+
+        Assert.assertArrayEquals(values, Pagination.decode(Pagination.encode(values), values.length));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidToken() {
+        Pagination.decode(Pagination.encode(new Object[] {"abc"}), 2);
+    }
+
+    @Test
+    public void testQuery() throws SQLException {
+        Pagination pagination = new Pagination(Parameters.parse("select * from pet where owner = :owner"), "id");
+
+        ArrayList<Object> values = new ArrayList<>();
+
+        Page page = pagination.query(getConnection(values, 1, 2, 3), mapOf(entry("owner", "Gwen")), null, 2);
+
+        Assert.assertEquals(listOf(1, 2), getIDs(page));
+        Assert.assertEquals(listOf("Gwen", 3), values);
+
+        String next = page.getNext();
+
+        Assert.assertNotNull(next);
+
+        values.clear();
+
+        page = pagination.query(getConnection(values, 3), mapOf(entry("owner", "Gwen")), next, 2);
+
+        Assert.assertEquals(listOf(3), getIDs(page));
+        Assert.assertEquals(listOf("Gwen", 2L, 3), values);
+
+        Assert.assertNull(page.getNext());
+    }
+
+    @Test
+    public void testQueryArguments() throws SQLException {
+        Pagination pagination = new Pagination(Parameters.parse("select p.id, count(*) as total from pet p where p.owner = :owner"
+            + " group by p.id having count(*) > :count"), "p.id");
+
+        ArrayList<Object> values = new ArrayList<>();
+
+        Page page = pagination.query(getConnection(values, "Oracle", 3), mapOf(entry("owner", "Gwen"), entry("count", 1)),
+            Pagination.encode(new Object[] {2}), 2);
+
+        Assert.assertEquals(listOf(3), getIDs(page));
+        Assert.assertEquals(listOf("Gwen", 2L, 1, 3), values);
+    }
+
+    private static List<Object> getIDs(Page page) throws SQLException {
+        ArrayList<Object> ids = new ArrayList<>();
+
+        try {
+            for (Map<String, Object> row : page.getItems()) {
+                ids.add(row.get("id"));
+            }
+        } finally {
+            page.close();
+        }
+
+        return ids;
+    }
+
+    private static Connection getConnection(List<Object> values, int... ids) {
+        return getConnection(values, "PostgreSQL", ids);
+    }
+
+    private static Connection getConnection(final List<Object> values, final String databaseProductName, final int... ids) {
+        final DatabaseMetaData databaseMetaData = (DatabaseMetaData)Proxy.newProxyInstance(PaginationTest.class.getClassLoader(),
+            new Class<?>[] {DatabaseMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("getDatabaseProductName")) {
+                    return databaseProductName;
+                }
+
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        final ResultSetMetaData resultSetMetaData = (ResultSetMetaData)Proxy.newProxyInstance(PaginationTest.class.getClassLoader(),
+            new Class<?>[] {ResultSetMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "getColumnCount": {
+                        return 1;
+                    }
+
+                    case "getColumnType": {
+                        return Types.INTEGER;
+                    }
+
+                    case "getColumnLabel": {
+                        return "id";
+                    }
+
+                    case "isSigned": {
+                        return true;
+                    }
+
+                    default: {
+                        throw new UnsupportedOperationException();
+                    }
+                }
+            }
+        });
+
+        final ResultSet resultSet = (ResultSet)Proxy.newProxyInstance(PaginationTest.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, new InvocationHandler() {
+            private int i = -1;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "getMetaData": {
+                        return resultSetMetaData;
+                    }
+
+                    case "next": {
+                        return ++i < ids.length;
+                    }
+
+                    case "getInt": {
+                        return ids[i];
+                    }
+
+                    case "wasNull": {
+                        return false;
+                    }
+
+                    case "getStatement":
+                    case "close": {
+                        return null;
+                    }
+
+                    default: {
+                        throw new UnsupportedOperationException();
+                    }
+                }
+            }
+        });
+
+        final PreparedStatement statement = (PreparedStatement)Proxy.newProxyInstance(PaginationTest.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("executeQuery")) {
+                    return resultSet;
+                }
+
+                if (method.getName().startsWith("set")) {
+                    int index = (Integer)arguments[0];
+
+                    while (values.size() < index) {
+                        values.add(null);
+                    }
+
+                    values.set(index - 1, arguments[1]);
+                }
+
+                return null;
+            }
+        });
+
+        return (Connection)Proxy.newProxyInstance(PaginationTest.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "prepareStatement": {
+                        return statement;
+                    }
+
+                    case "getMetaData": {
+                        return databaseMetaData;
+                    }
+
+                    default: {
+                        throw new UnsupportedOperationException();
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+import static org.httprpc.WebService.entry;
+
+public class ParametersTest {
+    @Test
+    public void testParse() {
+        String sql = "select * from test where a=:a or b=:b or c=coalesce(:c, 4.0)";
+
+        Parameters parameters = Parameters.parse(sql);
+
+        Assert.assertEquals("select * from test where a=? or b=? or c=coalesce(?, 4.0)", parameters.getSQL());
+        Assert.assertSame(parameters, Parameters.parse(sql));
+    }
+
+    @Test
+    public void testApply() throws SQLException {
+        final ArrayList<String> calls = new ArrayList<>();
+
+        PreparedStatement statement = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                calls.add(method.getName() + "(" + arguments[0] + ", " + arguments[1] + ")");
+
+                return null;
+            }
+        });
+
+        Parameters parameters = Parameters.parse("select * from pet where owner = :owner or (name = :name and owner <> :owner) or age > :age");
+
+        Assert.assertEquals("select * from pet where owner = ? or (name = ? and owner <> ?) or age > ?", parameters.getSQL());
+
+        final ArrayList<Object> keys = new ArrayList<>();
+
+        Map<String, Object> arguments = new HashMap<String, Object>(mapOf(entry("owner", "Gwen"), entry("name", "Fluffy"), entry("age", 3L))) {
+            private static final long serialVersionUID = 0;
+
+            @Override
+            public Object get(Object key) {
+                keys.add(key);
+
+                return super.get(key);
+            }
+        };
+
+        parameters.apply(statement, arguments);
+
+        Assert.assertEquals(listOf("owner", "name", "age"), keys);
+        Assert.assertEquals(listOf("setString(1, Gwen)", "setString(3, Gwen)", "setString(2, Fluffy)", "setLong(4, 3)"), calls);
+    }
+
+    @Test
+    public void testStream() throws SQLException {
+        Map<String, Object> mySQLCalls = stream("MySQL");
+
+        Assert.assertEquals(listOf(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), mySQLCalls.get("prepareStatement"));
+        Assert.assertEquals(Integer.MIN_VALUE, mySQLCalls.get("setFetchSize"));
+        Assert.assertFalse(mySQLCalls.containsKey("setAutoCommit"));
+
+        Map<String, Object> postgreSQLCalls = stream("PostgreSQL");
+
+        Assert.assertEquals(100, postgreSQLCalls.get("setFetchSize"));
+        Assert.assertEquals(false, postgreSQLCalls.get("setAutoCommit"));
+    }
+
+    private Map<String, Object> stream(final String databaseProductName) throws SQLException {
+        final HashMap<String, Object> calls = new HashMap<>();
+
+        final ResultSet resultSet = new TestResultSet(new String[] {"a"}, new int[] {Types.INTEGER}, new Object[] {1});
+
+        final PreparedStatement statement = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("executeQuery")) {
+                    return resultSet;
+                }
+
+                calls.put(method.getName(), arguments[arguments.length - 1]);
+
+                return null;
+            }
+        });
+
+        final DatabaseMetaData databaseMetaData = (DatabaseMetaData)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {DatabaseMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                return databaseProductName;
+            }
+        });
+
+        Connection connection = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "getMetaData": {
+                        return databaseMetaData;
+                    }
+
+                    case "getAutoCommit": {
+                        return true;
+                    }
+
+                    case "prepareStatement": {
+                        calls.put(method.getName(), listOf(arguments[1], arguments[2]));
+
+                        return statement;
+                    }
+
+                    default: {
+                        calls.put(method.getName(), arguments[0]);
+
+                        return null;
+                    }
+                }
+            }
+        });
+
+        Parameters parameters = Parameters.parse("select a from test where a > :a");
+
+        ArrayList<Map<String, Object>> rows = new ArrayList<>();
+
+        try (ResultSetAdapter resultSetAdapter = parameters.stream(connection, mapOf(entry("a", 0)), 100)) {
+            for (Map<String, Object> row : resultSetAdapter) {
+                rows.add(new HashMap<>(row));
+            }
+        }
+
+        Assert.assertEquals(listOf(mapOf(entry("a", 1))), rows);
+
+        return calls;
+    }
+
+    @Test
+    public void testPrepare() throws SQLException {
+        Parameters parameters = Parameters.parse("select a from test where a = :a");
+
+        Connection connection = getConnection();
+
+        PreparedStatement statement = parameters.prepare(connection);
+
+        Assert.assertNotSame(statement, parameters.prepare(connection));
+        Assert.assertFalse(ConnectionPool.isCached(statement));
+    }
+
+    private Connection getConnection() {
+        return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "isClosed": {
+                        return false;
+                    }
+
+                    case "prepareStatement": {
+                        return Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                                if (method.getName().equals("isClosed")) {
+                                    return false;
+                                }
+
+                                throw new UnsupportedOperationException();
+                            }
+                        });
+                    }
+
+                    default: {
+                        throw new UnsupportedOperationException();
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testExecuteBatch() throws SQLException {
+        final ArrayList<Object> values = new ArrayList<>();
+        final ArrayList<Integer> batches = new ArrayList<>();
+        final ArrayList<Integer> cleared = new ArrayList<>();
+
+        PreparedStatement statement = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+            private int n = 0;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "setInt":
+                    case "setString": {
+                        values.add(arguments[1]);
+
+                        return null;
+                    }
+
+                    case "addBatch": {
+                        n++;
+
+                        return null;
+                    }
+
+                    case "executeBatch": {
+                        int[] updateCounts = new int[n];
+
+                        Arrays.fill(updateCounts, 1);
+
+                        batches.add(n);
+
+                        n = 0;
+
+                        return updateCounts;
+                    }
+
+                    case "clearBatch": {
+                        cleared.add(n);
+
+                        n = 0;
+
+                        return null;
+                    }
+
+                    default: {
+                        throw new UnsupportedOperationException();
+                    }
+                }
+            }
+        });
+
+        Parameters parameters = Parameters.parse("insert into test (a, b) values (:a, :b)");
+
+        List<Map<String, ?>> arguments = new ArrayList<>();
+
+        arguments.add(mapOf(entry("a", 1), entry("b", "x")));
+        arguments.add(mapOf(entry("a", 2), entry("b", "y")));
+        arguments.add(mapOf(entry("a", 3), entry("b", "z")));
+
+        int[] updateCounts = parameters.executeBatch(statement, arguments, 2);
+
+        Assert.assertArrayEquals(new int[] {1, 1, 1}, updateCounts);
+        Assert.assertEquals(listOf(2, 1), batches);
+        Assert.assertEquals(listOf(1, "x", 2, "y", 3, "z"), values);
+        Assert.assertEquals(listOf(0), cleared);
+
+        arguments.add(mapOf(entry("a", 4), entry("b", null)));
+
+        try {
+            parameters.executeBatch(statement, arguments, 10);
+
+            Assert.fail();
+        } catch (UnsupportedOperationException exception) {
+            // setObject() is not supported by the test statement
+        }
+
+        Assert.assertEquals(listOf(0, 3), cleared);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+import static org.httprpc.WebService.mapOf;
+import static org.httprpc.WebService.entry;
+
+public class QueryCacheTest {
+    private int executions = 0;
+
+    @Test
+    public void testQueryCache() throws SQLException {
+        QueryCache queryCache = new QueryCache(getDataSource(), 10, 60000);
+
+        Parameters parameters = Parameters.parse("select * from pet where owner = :owner");
+
+        List<Map<String, Object>> result = queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Assert.assertEquals(listOf(mapOf(entry("name", "Fluffy"), entry("age", 3))), result);
+        Assert.assertEquals(1, executions);
+
+        Assert.assertSame(result, queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet"));
+        Assert.assertEquals(1, executions);
+
+        queryCache.query(parameters, mapOf(entry("owner", "Harold")), "pet");
+
+        Assert.assertEquals(2, executions);
+        Assert.assertEquals(2, queryCache.getSize());
+
+        queryCache.invalidate("owner");
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Assert.assertEquals(2, executions);
+
+        queryCache.invalidate("pet");
+
+        Assert.assertEquals(0, queryCache.getSize());
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Assert.assertEquals(3, executions);
+    }
+
+    @Test
+    public void testEviction() throws SQLException {
+        QueryCache queryCache = new QueryCache(getDataSource(), 1, 60000);
+
+        Parameters parameters = Parameters.parse("select * from pet where owner = :owner");
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+        queryCache.query(parameters, mapOf(entry("owner", "Harold")), "pet");
+
+        Assert.assertEquals(1, queryCache.getSize());
+
+        queryCache.query(parameters, mapOf(entry("owner", "Harold")), "pet");
+
+        Assert.assertEquals(2, executions);
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Assert.assertEquals(3, executions);
+    }
+
+    @Test
+    public void testExpiration() throws SQLException, InterruptedException {
+        QueryCache queryCache = new QueryCache(getDataSource(), 10, 50);
+
+        Parameters parameters = Parameters.parse("select * from pet where owner = :owner");
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Thread.sleep(100);
+
+        queryCache.query(parameters, mapOf(entry("owner", "Gwen")), "pet");
+
+        Assert.assertEquals(2, executions);
+    }
+
+    private DataSource getDataSource() {
+        final PreparedStatement statement = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "executeQuery": {
+                        executions++;
+
+                        return new TestResultSet(new String[] {"name", "age"}, new int[] {Types.VARCHAR, Types.INTEGER},
+                            new Object[] {"Fluffy", 3});
+                    }
+
+                    case "isClosed": {
+                        return false;
+                    }
+
+                    default: {
+                        return null;
+                    }
+                }
+            }
+        });
+
+        final Connection connection = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                switch (method.getName()) {
+                    case "prepareStatement": {
+                        return statement;
+                    }
+
+                    case "isClosed": {
+                        return false;
+                    }
+
+                    default: {
+                        return null;
+                    }
+                }
+            }
+        });
+
+        return (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("getConnection")) {
+                    return connection;
+                }
+
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+}
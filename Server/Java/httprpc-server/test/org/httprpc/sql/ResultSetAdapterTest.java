@@ -14,7 +14,10 @@
 
 package org.httprpc.sql;
 
+import java.math.BigInteger;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Map;
 
@@ -47,4 +50,59 @@ public class ResultSetAdapterTest {
             entry("e", "hello")
         )), list);
     }
+
+    @Test
+    public void testNestedResultSetAdapter() throws SQLException {
+        LinkedList<Map<String, Object>> list = new LinkedList<>();
+
+        TestResultSet resultSet = new TestResultSet(
+            new String[] {"id", "owner.name", "title", "owner.address.city", "owner.id", "count"},
+            new int[] {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT},
+            new Object[] {1, "joe", "abc", null, 10L, null});
+
+        try (ResultSetAdapter adapter = new ResultSetAdapter(resultSet)) {
+            for (Map<String, Object> row : adapter) {
+                list.add(row);
+            }
+        }
+
+        Assert.assertEquals(listOf(mapOf(
+            entry("id", 1),
+            entry("owner", mapOf(
+                entry("name", "joe"),
+                entry("address", mapOf(entry("city", null))),
+                entry("id", 10L)
+            )),
+            entry("title", "abc"),
+            entry("count", null)
+        )), list);
+
+        Assert.assertEquals(listOf("id", "owner", "title", "count"), new ArrayList<>(list.getFirst().keySet()));
+    }
+
+    @Test
+    public void testUnsignedResultSetAdapter() throws SQLException {
+        LinkedList<Map<String, Object>> list = new LinkedList<>();
+
+        BigInteger maximum = new BigInteger("18446744073709551615");
+
+        TestResultSet resultSet = new TestResultSet(
+            new String[] {"a", "b", "c", "d"},
+            new int[] {Types.SMALLINT, Types.INTEGER, Types.INTEGER, Types.BIGINT},
+            new boolean[] {false, false, true, false},
+            new Object[] {65535, 4294967295L, -1, maximum});
+
+        try (ResultSetAdapter adapter = new ResultSetAdapter(resultSet)) {
+            for (Map<String, Object> row : adapter) {
+                list.add(row);
+            }
+        }
+
+        Assert.assertEquals(listOf(mapOf(
+            entry("a", 65535),
+            entry("b", 4294967295L),
+            entry("c", -1),
+            entry("d", maximum)
+        )), list);
+    }
 }
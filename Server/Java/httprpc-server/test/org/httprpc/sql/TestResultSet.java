@@ -32,6 +32,7 @@ import java.sql.SQLXML;
 import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.Calendar;
 import java.util.Map;
 
@@ -79,7 +80,7 @@ public class TestResultSet implements ResultSet {
 
         @Override
         public boolean isSigned(int column) {
-            throw new UnsupportedOperationException();
+            return (signed == null) ? true : signed[column - 1];
         }
 
         @Override
@@ -124,7 +125,7 @@ public class TestResultSet implements ResultSet {
 
         @Override
         public int getColumnType(int column) {
-            throw new UnsupportedOperationException();
+            return types[column - 1];
         }
 
         @Override
@@ -155,6 +156,8 @@ public class TestResultSet implements ResultSet {
 
     private String[] labels = {"a", "b", "c", "d", "e"};
 
+    private int[] types = {Types.BIGINT, Types.DOUBLE, Types.VARCHAR, Types.DATE, Types.OTHER};
+
     private Object[] values = {2L, 4.0, "abc", new Date(0), new Object() {
         @Override
         public String toString() {
@@ -162,9 +165,36 @@ public class TestResultSet implements ResultSet {
         }
     }};
 
+    private boolean[] signed = null;
+
     private boolean hasNext = true;
     private boolean closed = false;
 
+    private boolean wasNull = false;
+
+    public TestResultSet() {
+    }
+
+    public TestResultSet(String[] labels, int[] types, Object[] values) {
+        this.labels = labels;
+        this.types = types;
+        this.values = values;
+    }
+
+    public TestResultSet(String[] labels, int[] types, boolean[] signed, Object[] values) {
+        this(labels, types, values);
+
+        this.signed = signed;
+    }
+
+    private Object getValue(int columnIndex) {
+        Object value = values[columnIndex - 1];
+
+        wasNull = (value == null);
+
+        return value;
+    }
+
     @Override
     public <T> T unwrap(Class<T> iface) {
         throw new UnsupportedOperationException();
@@ -191,12 +221,14 @@ public class TestResultSet implements ResultSet {
 
     @Override
     public boolean wasNull() {
-        throw new UnsupportedOperationException();
+        return wasNull;
     }
 
     @Override
     public String getString(int columnIndex) {
-        throw new UnsupportedOperationException();
+        Object value = getValue(columnIndex);
+
+        return (value == null) ? null : value.toString();
     }
 
     @Override
@@ -216,12 +248,16 @@ public class TestResultSet implements ResultSet {
 
     @Override
     public int getInt(int columnIndex) {
-        throw new UnsupportedOperationException();
+        Object value = getValue(columnIndex);
+
+        return (value == null) ? 0 : ((Number)value).intValue();
     }
 
     @Override
     public long getLong(int columnIndex) {
-        throw new UnsupportedOperationException();
+        Object value = getValue(columnIndex);
+
+        return (value == null) ? 0 : ((Number)value).longValue();
     }
 
     @Override
@@ -231,7 +267,9 @@ public class TestResultSet implements ResultSet {
 
     @Override
     public double getDouble(int columnIndex) {
-        throw new UnsupportedOperationException();
+        Object value = getValue(columnIndex);
+
+        return (value == null) ? 0 : ((Number)value).doubleValue();
     }
 
     @Override
@@ -375,7 +413,7 @@ public class TestResultSet implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex) {
-        return values[columnIndex - 1];
+        return getValue(columnIndex);
     }
 
     @Override
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.template;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TemplateCacheTest {
+    @Test
+    public void testCompile() throws IOException {
+        try (TemplateCache templateCache = new TemplateCache(TemplateCache.Mode.PRODUCTION)) {
+            templateCache.compile(getClass().getResource("master2.txt"));
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testInvalidTemplate() throws IOException {
+        try (TemplateCache templateCache = new TemplateCache(TemplateCache.Mode.PRODUCTION)) {
+            templateCache.compile(getClass().getResource("invalid.txt"));
+        }
+    }
+
+    @Test
+    public void testProductionMode() throws IOException {
+        File file = File.createTempFile("template", ".txt");
+
+        try (TemplateCache templateCache = new TemplateCache(TemplateCache.Mode.PRODUCTION)) {
+            URL url = file.toURI().toURL();
+
+            write(file, "a{{.}}");
+
+            TemplateEncoder engine = new TemplateEncoder(url, "text/plain");
+
+            engine.setTemplateCache(templateCache);
+
+            Assert.assertEquals("ax", encode(engine, "x"));
+
+            write(file, "b{{.}}");
+
+            Assert.assertEquals("ax", encode(engine, "x"));
+
+            templateCache.invalidate(url);
+
+            Assert.assertEquals("bx", encode(engine, "x"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDevelopmentMode() throws IOException, InterruptedException {
+        File file = File.createTempFile("template", ".txt");
+
+        try (TemplateCache templateCache = new TemplateCache(TemplateCache.Mode.DEVELOPMENT)) {
+            write(file, "a{{.}}");
+
+            TemplateEncoder engine = new TemplateEncoder(file.toURI().toURL(), "text/plain");
+
+            engine.setTemplateCache(templateCache);
+
+            Assert.assertEquals("ax", encode(engine, "x"));
+
+            write(file, "b{{.}}");
+
+            String result = encode(engine, "x");
+
+            for (int i = 0; i < 100 && !result.equals("bx"); i++) {
+                Thread.sleep(100);
+
+                result = encode(engine, "x");
+            }
+
+            Assert.assertEquals("bx", result);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(TemplateEncoder engine, Object value) throws IOException {
+        String result;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue(value, writer);
+            result = writer.toString();
+        }
+
+        return result;
+    }
+}
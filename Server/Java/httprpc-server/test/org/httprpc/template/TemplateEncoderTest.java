@@ -17,6 +17,7 @@ package org.httprpc.template;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -166,6 +167,74 @@ public class TemplateEncoderTest {
         Assert.assertEquals("{abc=ABC,list1=[{def=DEF,list2=[{one=1,two=2,three=3}]]}", result);
     }
 
+    @Test
+    public void testParallelSection() throws IOException {
+        ArrayList<Object> list1 = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            list1.add(mapOf(
+                entry("def", i),
+                entry("list2", listOf(mapOf(
+                    entry("one", 1),
+                    entry("two", 2),
+                    entry("three", 3)
+                )))
+            ));
+        }
+
+        Map<String, ?> dictionary = mapOf(
+            entry("abc", "ABC"),
+            entry("list1", list1)
+        );
+
+        TemplateEncoder engine = new TemplateEncoder(getClass().getResource("section2.txt"), "text/plain");
+
+        String expected;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue(dictionary, writer);
+            expected = writer.toString();
+        }
+
+        engine.setParallelismThreshold(2);
+
+        String result;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue(dictionary, writer);
+            result = writer.toString();
+        }
+
+        Assert.assertEquals(expected, result);
+    }
+
+    @Test
+    public void testParallelSectionInclude() throws IOException {
+        ArrayList<Object> list = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+
+        TemplateEncoder engine = new TemplateEncoder(getClass().getResource("master2.txt"), "text/plain");
+
+        engine.setParallelismThreshold(2);
+
+        String result;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue(list, writer);
+            result = writer.toString();
+        }
+
+        StringBuilder expected = new StringBuilder("[");
+
+        for (int i = 0; i < 1000; i++) {
+            expected.append("(" + i + ")");
+        }
+
+        expected.append("]");
+
+        Assert.assertEquals(expected.toString(), result);
+    }
+
     @Test
     public void testNestedSection2() throws IOException {
         TemplateEncoder engine = new TemplateEncoder(getClass().getResource("section3.txt"), "text/plain");
@@ -276,6 +345,19 @@ public class TemplateEncoderTest {
         Assert.assertEquals("a&lt;b&gt;c&amp;d&quot;e", result);
     }
 
+    @Test
+    public void testChainedMarkupEscapeModifier() throws IOException {
+        TemplateEncoder engine = new TemplateEncoder(getClass().getResource("markup2.txt"), "text/plain");
+
+        String result;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue("a<b>c&d\"e", writer);
+            result = writer.toString();
+        }
+
+        Assert.assertEquals("A&LT;B&GT;C&AMP;D&QUOT;E", result);
+    }
+
     @Test
     public void testJSONEscapeModifier() throws IOException {
         TemplateEncoder engine = new TemplateEncoder(getClass().getResource("json.txt"), "text/plain");
@@ -382,6 +464,20 @@ public class TemplateEncoderTest {
         Assert.assertEquals("value:hello", result);
     }
 
+    @Test
+    public void testSectionResource() throws IOException {
+        TemplateEncoder engine = new TemplateEncoder(getClass().getResource("resource4.txt"), "text/plain",
+            getClass().getPackage().getName() + ".resource1");
+
+        String result;
+        try (StringWriter writer = new StringWriter()) {
+            engine.writeValue(listOf("a", "b", "c"), writer);
+            result = writer.toString();
+        }
+
+        Assert.assertEquals("[(value:a)(value:b)(value:c)]", result);
+    }
+
     @Test(expected=MissingResourceException.class)
     public void testMissingResourceKey() throws IOException {
         TemplateEncoder engine = new TemplateEncoder(getClass().getResource("resource2.txt"), "text/plain",
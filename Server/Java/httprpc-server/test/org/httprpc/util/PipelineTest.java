@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.util;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+
+public class PipelineTest {
+    @Test
+    public void testPipeline() throws Exception {
+        TestIterator iterator = new TestIterator(listOf(1, 2, 3, 4, 5, 6, 7, 8).iterator());
+
+        List<Object> list = new ArrayList<>();
+
+        try (IteratorAdapter adapter = new IteratorAdapter(iterator);
+            Pipeline<Object> pipeline = adapter.pipeline().filter(new Predicate<Object>() {
+                @Override
+                public boolean test(Object value) {
+                    return (Integer)value % 2 == 0;
+                }
+            }).map(new Function<Object, Object>() {
+                @Override
+                public Object apply(Object value) {
+                    return (Integer)value * 10;
+                }
+            }).skip(1).limit(2)) {
+            for (Object element : pipeline) {
+                list.add(element);
+            }
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+        Assert.assertEquals(listOf(40, 60), list);
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        final ArrayList<Object> read = new ArrayList<>();
+
+        List<Object> list = new ArrayList<>();
+
+        try (Pipeline<Object> pipeline = new IteratorAdapter(listOf(1, 2, 3, 4).iterator()).pipeline().map(new Function<Object, Object>() {
+            @Override
+            public Object apply(Object value) {
+                read.add(value);
+
+                return value;
+            }
+        }).limit(2)) {
+            for (Object element : pipeline) {
+                list.add(element);
+            }
+        }
+
+        Assert.assertEquals(listOf(1, 2), list);
+        Assert.assertEquals(listOf(1, 2), read);
+    }
+
+    @Test
+    public void testFlatMap() throws Exception {
+        final ArrayList<TestIterator> iterators = new ArrayList<>();
+
+        List<Object> list = new ArrayList<>();
+
+        try (Pipeline<Object> pipeline = Pipeline.of(listOf(listOf(1, 2), listOf(), null, listOf(3))).flatMap(new Function<Object, Iterable<?>>() {
+            @Override
+            public Iterable<?> apply(Object value) {
+                if (value == null) {
+                    return null;
+                }
+
+                TestIterator iterator = new TestIterator(((List<?>)value).iterator());
+
+                iterators.add(iterator);
+
+                return new IteratorAdapter(iterator);
+            }
+        })) {
+            for (Object element : pipeline) {
+                list.add(element);
+            }
+        }
+
+        Assert.assertEquals(listOf(1, 2, 3), list);
+
+        for (TestIterator iterator : iterators) {
+            Assert.assertTrue(iterator.isClosed());
+        }
+    }
+
+    @Test
+    public void testFlatMapLimit() throws Exception {
+        final ArrayList<TestIterator> iterators = new ArrayList<>();
+
+        List<Object> list = new ArrayList<>();
+
+        TestIterator source = new TestIterator(listOf(listOf(1, 2), listOf(3, 4)).iterator());
+
+        try (IteratorAdapter adapter = new IteratorAdapter(source);
+            Pipeline<Object> pipeline = adapter.pipeline().flatMap(new Function<Object, Iterable<?>>() {
+                @Override
+                public Iterable<?> apply(Object value) {
+                    TestIterator iterator = new TestIterator(((List<?>)value).iterator());
+
+                    iterators.add(iterator);
+
+                    return new IteratorAdapter(iterator);
+                }
+            }).limit(3)) {
+            for (Object element : pipeline) {
+                list.add(element);
+            }
+
+            // The second inner iterable is still open
+            Assert.assertFalse(iterators.get(1).isClosed());
+        }
+
+        Assert.assertEquals(listOf(1, 2, 3), list);
+        Assert.assertEquals(2, iterators.size());
+
+        Assert.assertTrue(source.isClosed());
+
+        for (TestIterator iterator : iterators) {
+            Assert.assertTrue(iterator.isClosed());
+        }
+    }
+
+    @Test
+    public void testCloseFailure() {
+        final IOException sourceException = new IOException();
+        final SQLException innerException = new SQLException();
+
+        final ArrayList<Object> closed = new ArrayList<>();
+
+        IteratorAdapter adapter = new IteratorAdapter(listOf(listOf(1, 2)).iterator()) {
+            @Override
+            public void close() throws IOException {
+                closed.add(this);
+
+                throw sourceException;
+            }
+        };
+
+        Pipeline<Object> pipeline = adapter.pipeline().flatMap(new Function<Object, Iterable<?>>() {
+            @Override
+            public Iterable<?> apply(Object value) {
+                return new IteratorAdapter(((List<?>)value).iterator()) {
+                    @Override
+                    public void close() throws SQLException {
+                        closed.add(this);
+
+                        throw innerException;
+                    }
+                };
+            }
+        }).limit(1);
+
+        for (Object element : pipeline) {
+            Assert.assertEquals(1, element);
+        }
+
+        try {
+            pipeline.close();
+
+            Assert.fail();
+        } catch (IOException exception) {
+            Assert.assertSame(innerException, exception.getCause());
+            Assert.assertArrayEquals(new Throwable[] {sourceException}, exception.getSuppressed());
+        }
+
+        Assert.assertEquals(2, closed.size());
+        Assert.assertSame(adapter, closed.get(1));
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.httprpc.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.httprpc.WebService.listOf;
+
+public class PrefetchingIteratorAdapterTest {
+    @Test
+    public void testPrefetchingIteratorAdapter() throws Exception {
+        List<?> list1 = listOf(1, null, "abc", 4.0);
+
+        ArrayList<Object> list2 = new ArrayList<>();
+
+        TestIterator iterator = new TestIterator(list1.iterator());
+
+        try (PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 2)) {
+            for (Object element : adapter) {
+                list2.add(element);
+            }
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+        Assert.assertEquals(list1, list2);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+
+        TestIterator iterator = new TestIterator(new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                return count.incrementAndGet();
+            }
+        });
+
+        try (PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 4)) {
+            Iterator<Object> adapterIterator = adapter.iterator();
+
+            Assert.assertEquals(1, adapterIterator.next());
+            Assert.assertEquals(2, adapterIterator.next());
+
+            Thread.sleep(100);
+
+            // Four buffered elements, plus one waiting to be added
+            Assert.assertTrue(count.get() <= 7);
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+
+        int n = count.get();
+
+        Thread.sleep(50);
+
+        Assert.assertEquals(n, count.get());
+    }
+
+    @Test
+    public void testException() throws Exception {
+        TestIterator iterator = new TestIterator(new Iterator<Object>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                if (i == 2) {
+                    throw new IllegalStateException();
+                }
+
+                return i++;
+            }
+        });
+
+        ArrayList<Object> list = new ArrayList<>();
+
+        try (PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 8)) {
+            for (Object element : adapter) {
+                list.add(element);
+            }
+
+            Assert.fail();
+        } catch (IllegalStateException exception) {
+            Assert.assertEquals(listOf(0, 1), list);
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+    }
+
+    @Test
+    public void testSwallowedInterrupt() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        TestIterator iterator = new TestIterator(new Iterator<Object>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                if (i == 1) {
+                    blocked.countDown();
+
+                    await(release);
+                }
+
+                return i++;
+            }
+        });
+
+        PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 1);
+
+        blocked.await();
+
+        new Timer(true).schedule(new TimerTask() {
+            @Override
+            public void run() {
+                release.countDown();
+            }
+        }, 100);
+
+        adapter.close();
+
+        Assert.assertTrue(iterator.isClosed());
+    }
+
+    @Test
+    public void testBlockedSource() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        TestIterator iterator = new TestIterator(new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                blocked.countDown();
+
+                await(release);
+
+                return 0;
+            }
+        });
+
+        PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 1);
+
+        blocked.await();
+
+        adapter.close();
+
+        Assert.assertFalse(iterator.isClosed());
+
+        release.countDown();
+
+        for (int i = 0; i < 50 && !iterator.isClosed(); i++) {
+            Thread.sleep(20);
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+    }
+
+    @Test
+    public void testRejectedExecution() throws Exception {
+        List<?> list1 = listOf(1, 2, 3);
+
+        ArrayList<Object> list2 = new ArrayList<>();
+
+        TestIterator iterator = new TestIterator(list1.iterator());
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        try (PrefetchingIteratorAdapter adapter = new PrefetchingIteratorAdapter(iterator, 2, executor)) {
+            for (Object element : adapter) {
+                list2.add(element);
+            }
+        }
+
+        Assert.assertTrue(iterator.isClosed());
+        Assert.assertEquals(list1, list2);
+    }
+
+    // Waits for a latch, ignoring interrupts
+    private static void await(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+
+                break;
+            } catch (InterruptedException exception) {
+                // No-op
+            }
+        }
+    }
+}
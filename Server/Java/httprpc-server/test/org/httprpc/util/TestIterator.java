@@ -19,7 +19,7 @@ import java.util.Iterator;
 public class TestIterator implements Iterator<Object>, AutoCloseable {
     private Iterator<?> iterator;
 
-    private boolean closed = false;
+    private volatile boolean closed = false;
 
     public TestIterator(Iterator<?> iterator) {
         this.iterator = iterator;